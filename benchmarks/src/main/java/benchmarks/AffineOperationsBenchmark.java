@@ -0,0 +1,165 @@
+package benchmarks;
+
+import app.AffineOperations.AffineOperations;
+import app.AffineOperations.AffineOperationsImpl;
+import app.AffineOperations.Matrix4;
+import app.Mesh;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Every AffineOperations method, both the allocating and the destination buffer variant,
+// and the fused transform, projection and viewport kernel the render pipeline runs
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AffineOperationsBenchmark {
+
+    private static final double ANGLE = Math.PI / 7;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    MeshSize size;
+
+    private final AffineOperations operations = new AffineOperationsImpl();
+    private final Matrix4 operator = new Matrix4().setOXRotation(ANGLE).multiply(new Matrix4().setOYRotation(ANGLE));
+    private final Matrix4 perspectiveOperator = new Matrix4(operator).multiply(new Matrix4().setPerspective());
+
+    private Mesh mesh;
+    private double[] destination;
+
+    @Setup
+    public void setUp() {
+        mesh = size.getMesh();
+        destination = new double[mesh.getNodesCount() * Mesh.NODE_SIZE];
+    }
+
+    @Benchmark
+    public Mesh perspectiveProjection() {
+        return operations.perspectiveProjection(mesh);
+    }
+
+    @Benchmark
+    public Mesh move() {
+        return operations.move(10, 20, mesh);
+    }
+
+    @Benchmark
+    public Mesh scale() {
+        return operations.scale(1.1, mesh);
+    }
+
+    @Benchmark
+    public Mesh oXRotation() {
+        return operations.oXRotation(ANGLE, mesh);
+    }
+
+    @Benchmark
+    public Mesh oYRotation() {
+        return operations.oYRotation(ANGLE, mesh);
+    }
+
+    @Benchmark
+    public Mesh oZRotation() {
+        return operations.oZRotation(ANGLE, mesh);
+    }
+
+    @Benchmark
+    public Mesh mirrorOX() {
+        return operations.mirrorOX(mesh);
+    }
+
+    @Benchmark
+    public Mesh mirrorOY() {
+        return operations.mirrorOY(mesh);
+    }
+
+    @Benchmark
+    public Mesh mirrorOZ() {
+        return operations.mirrorOZ(mesh);
+    }
+
+    @Benchmark
+    public Mesh transform() {
+        return operations.transform(operator, mesh);
+    }
+
+    // Destination Buffer Variants
+
+    @Benchmark
+    public double[] perspectiveProjectionToBuffer() {
+        operations.perspectiveProjection(mesh, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] moveToBuffer() {
+        operations.move(10, 20, mesh, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] scaleToBuffer() {
+        operations.scale(1.1, mesh, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] oXRotationToBuffer() {
+        operations.oXRotation(ANGLE, mesh, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] oYRotationToBuffer() {
+        operations.oYRotation(ANGLE, mesh, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] oZRotationToBuffer() {
+        operations.oZRotation(ANGLE, mesh, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] mirrorOXToBuffer() {
+        operations.mirrorOX(mesh, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] mirrorOYToBuffer() {
+        operations.mirrorOY(mesh, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] mirrorOZToBuffer() {
+        operations.mirrorOZ(mesh, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] transformToBuffer() {
+        operations.transform(operator, mesh, destination);
+        return destination;
+    }
+
+    // Fused Kernel
+
+    @Benchmark
+    public double[] transformToViewport() {
+        operator.transform(mesh, destination, 0, 350, 250);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] perspectiveTransformToViewport() {
+        perspectiveOperator.transform(mesh, destination, 0, 350, 250);
+        return destination;
+    }
+
+}
@@ -0,0 +1,33 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Same command line as the stock JMH runner, but the gc profiler is always on,
+// so every report carries the allocation rate (gc.alloc.rate.norm is bytes per operation)
+public final class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        final CommandLineOptions commandLineOptions;
+        try {
+            commandLineOptions = new CommandLineOptions(args);
+        }
+        catch (CommandLineOptionException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        final var options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+
+}
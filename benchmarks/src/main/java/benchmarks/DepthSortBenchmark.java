@@ -0,0 +1,74 @@
+package benchmarks;
+
+import app.Rendering.RadixSorter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Ordering of painter depth keys: the radix sort on the calling thread and on the
+// common pool against sorting the keys packed with their polygons into longs
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepthSortBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int count;
+
+    private final RadixSorter serialSorter = new RadixSorter(null, RadixSorter.DEFAULT_CHUNK_SIZE);
+    private final RadixSorter parallelSorter = new RadixSorter(ForkJoinPool.commonPool(), RadixSorter.DEFAULT_CHUNK_SIZE);
+
+    private int[] sourceKeys;
+    private int[] keys;
+    private int[] values;
+    private long[] packed;
+
+    @Setup
+    public void setUp() {
+        final var random = new Random(42);
+        sourceKeys = new int[count];
+        for (var i = 0; i < count; i++)
+            sourceKeys[i] = Float.floatToIntBits((float) random.nextGaussian() * 300) ^ Integer.MIN_VALUE;
+
+        keys = new int[count];
+        values = new int[count];
+        packed = new long[count];
+    }
+
+    @Benchmark
+    public int[] radixSort() {
+        reset();
+        serialSorter.sort(keys, values, count);
+        return values;
+    }
+
+    @Benchmark
+    public int[] parallelRadixSort() {
+        reset();
+        parallelSorter.sort(keys, values, count);
+        return values;
+    }
+
+    @Benchmark
+    public long[] arraysSort() {
+        for (var i = 0; i < count; i++)
+            packed[i] = (long) (sourceKeys[i] ^ Integer.MIN_VALUE) << 32 | i;
+        Arrays.sort(packed);
+        return packed;
+    }
+
+    // Helpers
+
+    private void reset() {
+        System.arraycopy(sourceKeys, 0, keys, 0, count);
+        for (var i = 0; i < count; i++)
+            values[i] = i;
+    }
+
+}
@@ -0,0 +1,26 @@
+package benchmarks;
+
+import app.Figure;
+import app.Mesh;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Every Figure generator at its default resolution
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FigureBenchmark {
+
+    @Param({"PYRAMID", "CUBE", "OCTAHEDRON", "ICOSAHEDRON", "DODECAHEDRON", "SPHERE_WITH_POLES", "SPHERE_WITHOUT_POLES"})
+    Figure figure;
+
+    @Benchmark
+    public Mesh generate() {
+        return figure.getMesh();
+    }
+
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import app.AffineOperations.ModelTransform;
+import app.Mesh;
+import app.Rendering.FrameRequest;
+import app.Rendering.OffscreenRenderer;
+import app.Rendering.RenderMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+// A whole frame against an offscreen target: geometry, visibility and rasterization.
+// The model keeps rotating, so no two consecutive frames are the same.
+// The mesh order compares memory layouts, e.g. -p order=SHUFFLED,OPTIMIZED.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FrameBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    MeshSize size;
+
+    @Param({"WIREFRAME", "FILLED", "PAINTER"})
+    RenderMode mode;
+
+    @Param({"true"})
+    boolean isPerspectiveProjection;
+
+    @Param({"GENERATED"})
+    MeshOrder order;
+
+    private final ModelTransform transform = new ModelTransform();
+    private final OffscreenRenderer renderer = new OffscreenRenderer();
+
+    private Mesh mesh;
+
+    @Setup
+    public void setUp() {
+        mesh = order.apply(size.getMesh());
+        mesh.getEdges();
+        transform.oXRotation(0.4);
+    }
+
+    @Benchmark
+    public BufferedImage render() {
+        transform.oYRotation(0.01);
+        return renderer.render(new FrameRequest(mesh, transform.getMatrix(), isPerspectiveProjection, true, 700, 474), mode);
+    }
+
+}
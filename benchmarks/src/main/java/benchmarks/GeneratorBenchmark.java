@@ -0,0 +1,38 @@
+package benchmarks;
+
+import app.Mesh;
+import app.MeshGenerator;
+import app.MeshGenerators;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Parametric generators found as services. A resolution of 1024 gives about a million nodes,
+// the bands of rows are spread over the common pool.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    @Param({"TORUS", "SUPERQUADRIC", "HEIGHT_FIELD"})
+    String name;
+
+    @Param({"128", "1024"})
+    int resolution;
+
+    private MeshGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = MeshGenerators.find(name);
+    }
+
+    @Benchmark
+    public Mesh generate() {
+        return generator.getMesh(resolution);
+    }
+
+}
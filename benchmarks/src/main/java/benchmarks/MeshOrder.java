@@ -0,0 +1,62 @@
+package benchmarks;
+
+import app.Mesh;
+import app.MeshOptimizer;
+
+import java.util.Random;
+
+// Memory order of benchmark meshes: as generated, shuffled like a mesh exported
+// without any care for locality, or reordered by the optimizer
+public enum MeshOrder {
+    GENERATED,
+    SHUFFLED,
+    OPTIMIZED;
+
+    public Mesh apply(Mesh mesh) {
+        switch (this) {
+            case SHUFFLED:
+                return shuffle(mesh);
+            case OPTIMIZED:
+                return MeshOptimizer.optimize(shuffle(mesh));
+            default:
+                return mesh;
+        }
+    }
+
+    // Helpers
+
+    private static Mesh shuffle(Mesh mesh) {
+        final var random = new Random(42);
+        final var nodesOrder = permutation(mesh.getNodesCount(), random);
+        final var polygonsOrder = permutation(mesh.getPolygonsCount(), random);
+
+        final var newNodes = new int[mesh.getNodesCount()];
+        final var nodes = new double[mesh.getNodesCount() * Mesh.NODE_SIZE];
+        for (var i = 0; i < nodesOrder.length; i++) {
+            final var node = nodesOrder[i];
+            newNodes[node] = i;
+            nodes[i * Mesh.NODE_SIZE] = mesh.getX(node);
+            nodes[i * Mesh.NODE_SIZE + 1] = mesh.getY(node);
+            nodes[i * Mesh.NODE_SIZE + 2] = mesh.getZ(node);
+        }
+
+        final var indices = new int[mesh.getPolygonsCount() * Mesh.POLYGON_SIZE];
+        for (var i = 0; i < polygonsOrder.length; i++)
+            for (var corner = 0; corner < Mesh.POLYGON_SIZE; corner++)
+                indices[i * Mesh.POLYGON_SIZE + corner] = newNodes[mesh.getIndex(polygonsOrder[i] * Mesh.POLYGON_SIZE + corner)];
+
+        return Mesh.of(nodes, indices).withPrecision(mesh.getPrecision()).withOrientation(mesh.getOrientation());
+    }
+
+    private static int[] permutation(int count, Random random) {
+        final var result = new int[count];
+        for (var i = 0; i < count; i++) {
+            final var j = random.nextInt(i + 1);
+            result[i] = result[j];
+            result[j] = i;
+        }
+
+        return result;
+    }
+
+}
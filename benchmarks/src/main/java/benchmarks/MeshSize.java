@@ -0,0 +1,25 @@
+package benchmarks;
+
+import app.Figure;
+import app.Mesh;
+
+// Benchmark mesh sizes. A sphere without poles of the given subdivision depth and
+// a sphere with poles of the given bands have the same number of polygons.
+public enum MeshSize {
+    SMALL(2, 9),
+    MEDIUM(4, 36),
+    LARGE(6, 144);
+
+    final int depth;
+    final int bands;
+
+    MeshSize(int depth, int bands) {
+        this.depth = depth;
+        this.bands = bands;
+    }
+
+    public Mesh getMesh() {
+        return Figure.SPHERE_WITHOUT_POLES.getMesh(depth);
+    }
+
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import app.AffineOperations.Matrix4;
+import app.AffineOperations.ModelTransform;
+import app.Mesh;
+import app.Rendering.FrameRequest;
+import app.Rendering.OffscreenRenderer;
+import app.Rendering.RenderMode;
+import app.Rendering.View;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+// Four views of one rotating mesh on a 700x474 target: with the shared world space nodes,
+// against four whole pipelines in quarter size images, one per view. A single view of the
+// whole target is the baseline.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MultiViewBenchmark {
+
+    private static final int WIDTH = 700;
+    private static final int HEIGHT = 474;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    MeshSize size;
+
+    @Param({"WIREFRAME", "FILLED"})
+    RenderMode mode;
+
+    private final ModelTransform transform = new ModelTransform();
+    private final OffscreenRenderer renderer = new OffscreenRenderer();
+    private final OffscreenRenderer[] viewRenderers = new OffscreenRenderer[View.values().length];
+    private final Matrix4 viewMatrix = new Matrix4();
+    private final Matrix4 halfScale = new Matrix4().setScale(0.5);
+    private final Matrix4 matrix = new Matrix4();
+
+    private Mesh mesh;
+
+    @Setup
+    public void setUp() {
+        mesh = size.getMesh();
+        mesh.getEdges();
+        mesh.getFacePlanes();
+        transform.oXRotation(0.4);
+
+        for (var i = 0; i < viewRenderers.length; i++)
+            viewRenderers[i] = new OffscreenRenderer();
+    }
+
+    @Benchmark
+    public BufferedImage oneView() {
+        transform.oYRotation(0.01);
+        return renderer.render(new FrameRequest(mesh, transform.getMatrix(), true, true, WIDTH, HEIGHT), mode);
+    }
+
+    @Benchmark
+    public BufferedImage fourViews() {
+        transform.oYRotation(0.01);
+        return renderer.renderViews(new FrameRequest(mesh, transform.getMatrix(), true, true, WIDTH, HEIGHT), mode);
+    }
+
+    @Benchmark
+    public BufferedImage fourPipelines() {
+        transform.oYRotation(0.01);
+
+        BufferedImage result = null;
+        for (final var view : View.values()) {
+            matrix.set(transform.getMatrix()).multiply(view.getMatrix(viewMatrix)).multiply(halfScale);
+            result = viewRenderers[view.ordinal()].render(
+                    new FrameRequest(mesh, matrix, view.isPerspective(), true, WIDTH / 2, HEIGHT / 2), mode);
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import app.AffineOperations.Matrix4;
+import app.Mesh;
+import app.MeshBvh;
+import app.Rendering.FrameRequest;
+import app.Rendering.PickResult;
+import app.Rendering.Picker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Ray picking of random canvas points through a rotated perspective view,
+// and the lazy build of the hierarchy the first pick pays for
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PickingBenchmark {
+
+    private static final int WIDTH = 700;
+    private static final int HEIGHT = 500;
+    private static final int POINTS_COUNT = 1024;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    MeshSize size;
+
+    private final Picker picker = new Picker();
+    private final PickResult result = new PickResult();
+    private final double[] points = new double[POINTS_COUNT * 2];
+
+    private Mesh mesh;
+    private double[] nodes;
+    private FrameRequest request;
+    private int point;
+
+    @Setup
+    public void setUp() {
+        mesh = size.getMesh();
+        mesh.getBvh();
+        nodes = new double[mesh.getNodesCount() * Mesh.NODE_SIZE];
+        mesh.copyNodes(nodes);
+
+        final var matrix = new Matrix4().setOXRotation(0.4).multiply(new Matrix4().setOYRotation(0.7));
+        request = new FrameRequest(mesh, matrix, true, true, WIDTH, HEIGHT);
+
+        // Points around the middle of the canvas, where the sphere is
+        final var random = new Random(1);
+        for (var i = 0; i < POINTS_COUNT; i++) {
+            points[i * 2] = WIDTH / 2d + random.nextGaussian() * 100;
+            points[i * 2 + 1] = HEIGHT / 2d + random.nextGaussian() * 100;
+        }
+    }
+
+    @Benchmark
+    public boolean pick() {
+        point = (point + 1) % POINTS_COUNT;
+        return picker.pick(request, points[point * 2], points[point * 2 + 1], result);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MeshBvh buildHierarchy() {
+        // A new mesh over the same arrays has no hierarchy yet
+        return mesh.withNodes(nodes).getBvh();
+    }
+
+}
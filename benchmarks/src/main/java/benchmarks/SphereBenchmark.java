@@ -0,0 +1,50 @@
+package benchmarks;
+
+import app.AffineOperations.ModelTransform;
+import app.Figure;
+import app.Mesh;
+import app.SphereSubdivision;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Sphere generators at growing resolutions, both produce the same number of polygons per size.
+// The adaptive sphere follows a slow rotation, zoomed in four times more at every size.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SphereBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    MeshSize size;
+
+    private final ModelTransform transform = new ModelTransform();
+    private SphereSubdivision subdivision;
+
+    @Setup
+    public void setUp() {
+        subdivision = new SphereSubdivision();
+        transform.scale(1 << 2 * size.ordinal());
+        transform.oXRotation(0.4);
+    }
+
+    @Benchmark
+    public Mesh sphereWithPoles() {
+        return Figure.SPHERE_WITH_POLES.getMesh(size.bands);
+    }
+
+    @Benchmark
+    public Mesh sphereWithoutPoles() {
+        return Figure.SPHERE_WITHOUT_POLES.getMesh(size.depth);
+    }
+
+    @Benchmark
+    public Mesh adaptiveSphere() {
+        transform.oYRotation(0.01);
+        return subdivision.update(transform.getMatrix(), false, 700, 474);
+    }
+
+}
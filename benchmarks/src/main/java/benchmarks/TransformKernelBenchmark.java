@@ -0,0 +1,54 @@
+package benchmarks;
+
+import app.AffineOperations.Matrix4;
+import app.Mesh;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// The fused transform kernel of double precision nodes with the portable loop and with the Vector API.
+// The same code runs in both forks, Matrix4 picks the vectorized kernel when the incubator module is there.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TransformKernelBenchmark {
+
+    private static final double ANGLE = Math.PI / 7;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    MeshSize size;
+
+    @Param({"false", "true"})
+    boolean isPerspective;
+
+    private final Matrix4 operator = new Matrix4();
+    private Mesh mesh;
+    private double[] destination;
+
+    @Setup
+    public void setUp() {
+        mesh = size.getMesh().withPrecision(Mesh.Precision.DOUBLE);
+        destination = new double[mesh.getNodesCount() * Mesh.NODE_SIZE];
+
+        operator.setOXRotation(ANGLE).multiply(new Matrix4().setOYRotation(ANGLE));
+        if (isPerspective)
+            operator.multiply(new Matrix4().setPerspective());
+    }
+
+    @Benchmark
+    @Fork(1)
+    public double[] scalar() {
+        operator.transform(mesh, destination, 0, 350, 250);
+        return destination;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public double[] vector() {
+        operator.transform(mesh, destination, 0, 350, 250);
+        return destination;
+    }
+
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import app.Mesh;
+import app.MeshBuilder;
+import app.VertexWelder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// addNode with every polygon corner of a mesh, so most nodes are welded to an existing one,
+// the way the generators use it
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VertexWelderBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    MeshSize size;
+
+    private double[] corners;
+
+    @Setup
+    public void setUp() {
+        final var mesh = size.getMesh();
+        corners = new double[mesh.getPolygonsCount() * Mesh.POLYGON_SIZE * Mesh.NODE_SIZE];
+
+        for (var i = 0; i < mesh.getPolygonsCount() * Mesh.POLYGON_SIZE; i++) {
+            final var node = mesh.getIndex(i);
+            corners[i * Mesh.NODE_SIZE] = mesh.getX(node);
+            corners[i * Mesh.NODE_SIZE + 1] = mesh.getY(node);
+            corners[i * Mesh.NODE_SIZE + 2] = mesh.getZ(node);
+        }
+    }
+
+    @Benchmark
+    public MeshBuilder addNode() {
+        final var welder = new VertexWelder(new MeshBuilder());
+        for (var i = 0; i < corners.length; i += Mesh.NODE_SIZE)
+            welder.addNode(corners[i], corners[i + 1], corners[i + 2]);
+
+        return welder.getBuilder();
+    }
+
+    @Benchmark
+    public MeshBuilder addNodeToBuilder() {
+        final var builder = new MeshBuilder();
+        for (var i = 0; i < corners.length; i += Mesh.NODE_SIZE)
+            builder.addNode(corners[i], corners[i + 1], corners[i + 2]);
+
+        return builder;
+    }
+
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import app.AffineOperations.Matrix4;
+import app.Mesh;
+import app.Rendering.VisibilityBitSet;
+import app.Rendering.VisibilityEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Roberts visibility of a rotated perspective frame, on the calling thread and on the common pool
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisibilityBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    MeshSize size;
+
+    @Param({"false", "true"})
+    boolean isParallel;
+
+    private final VisibilityBitSet visibility = new VisibilityBitSet();
+
+    private VisibilityEngine engine;
+    private Mesh mesh;
+    private Matrix4 operator;
+
+    @Setup
+    public void setUp() {
+        engine = new VisibilityEngine(isParallel ? ForkJoinPool.commonPool() : null, VisibilityEngine.DEFAULT_PARALLEL_THRESHOLD);
+        mesh = size.getMesh();
+        operator = new Matrix4().setOXRotation(0.4)
+                .multiply(new Matrix4().setOYRotation(0.7))
+                .multiply(new Matrix4().setPerspective());
+
+        // Planes are cached per mesh, the first frame pays for them
+        mesh.getFacePlanes();
+    }
+
+    @Benchmark
+    public VisibilityBitSet calculate() {
+        engine.calculate(mesh, operator, visibility);
+        return visibility;
+    }
+
+}
@@ -1,17 +1,31 @@
 package app.AffineOperations;
 
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import app.Mesh;
 
 public interface AffineOperations {
 
-    Array2DRowRealMatrix perspectiveProjection(Array2DRowRealMatrix matrix);
-    Array2DRowRealMatrix move(double dx, double dy, Array2DRowRealMatrix matrix);
-    Array2DRowRealMatrix scale(double scaleFactor, Array2DRowRealMatrix matrix);
-    Array2DRowRealMatrix oXRotation(double angle, Array2DRowRealMatrix matrix);
-    Array2DRowRealMatrix oYRotation(double angle, Array2DRowRealMatrix matrix);
-    Array2DRowRealMatrix oZRotation(double angle, Array2DRowRealMatrix matrix);
-    Array2DRowRealMatrix mirrorOX(Array2DRowRealMatrix matrix);
-    Array2DRowRealMatrix mirrorOY(Array2DRowRealMatrix matrix);
-    Array2DRowRealMatrix mirrorOZ(Array2DRowRealMatrix matrix);
+    Mesh perspectiveProjection(Mesh mesh);
+    Mesh move(double dx, double dy, Mesh mesh);
+    Mesh scale(double scaleFactor, Mesh mesh);
+    Mesh oXRotation(double angle, Mesh mesh);
+    Mesh oYRotation(double angle, Mesh mesh);
+    Mesh oZRotation(double angle, Mesh mesh);
+    Mesh mirrorOX(Mesh mesh);
+    Mesh mirrorOY(Mesh mesh);
+    Mesh mirrorOZ(Mesh mesh);
+    Mesh transform(Matrix4 operator, Mesh mesh);
+
+    // Allocation-free variants, the destination receives packed x, y, z triples
+
+    void perspectiveProjection(Mesh mesh, double[] destination);
+    void move(double dx, double dy, Mesh mesh, double[] destination);
+    void scale(double scaleFactor, Mesh mesh, double[] destination);
+    void oXRotation(double angle, Mesh mesh, double[] destination);
+    void oYRotation(double angle, Mesh mesh, double[] destination);
+    void oZRotation(double angle, Mesh mesh, double[] destination);
+    void mirrorOX(Mesh mesh, double[] destination);
+    void mirrorOY(Mesh mesh, double[] destination);
+    void mirrorOZ(Mesh mesh, double[] destination);
+    void transform(Matrix4 operator, Mesh mesh, double[] destination);
 
 }
@@ -1,121 +1,94 @@
 package app.AffineOperations;
 
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.ArrayRealVector;
-import org.apache.commons.math3.linear.RealVector;
+import app.Mesh;
 
+// Not thread-safe: the operator matrix is reused between calls.
 public class AffineOperationsImpl implements AffineOperations {
 
-    public Array2DRowRealMatrix perspectiveProjection(Array2DRowRealMatrix matrix) {
-        final var perspective = new Array2DRowRealMatrix(new double[][] {
-                { 1, 0, 0, 0 },
-                { 0, 1, 0, 0 },
-                { 0, 0, 1, -1d/300d },
-                { 0, 0, 0, 1 }
-        });
+    private final Matrix4 operator = new Matrix4();
 
-        matrix = matrix.multiply(perspective);
-        correctH(matrix);
-        return matrix;
+    public Mesh perspectiveProjection(Mesh mesh) {
+        return transform(operator.setPerspective(), mesh);
     }
 
-    public Array2DRowRealMatrix move(double dx, double dy, Array2DRowRealMatrix matrix) {
-        final var offset = new Array2DRowRealMatrix(new double[][] {
-                { 1, 0, 0, 0 },
-                { 0, 1, 0, 0 },
-                { 0, 0, 1, 0 },
-                { dx, dy, 0, 1 }
-        });
+    public Mesh move(double dx, double dy, Mesh mesh) {
+        return transform(operator.setMove(dx, dy), mesh);
+    }
 
-        return matrix.multiply(offset);
+    public Mesh scale(double scaleFactor, Mesh mesh) {
+        return transform(operator.setScale(scaleFactor), mesh);
     }
 
-    public Array2DRowRealMatrix scale(double scaleFactor, Array2DRowRealMatrix matrix) {
-        final var scale = new Array2DRowRealMatrix(new double[][] {
-                { 1, 0, 0, 0 },
-                { 0, 1, 0, 0 },
-                { 0, 0, 1, 0 },
-                { 0, 0, 0, 1 / scaleFactor }
-        });
+    public Mesh oXRotation(double angle, Mesh mesh) {
+        return transform(operator.setOXRotation(angle), mesh);
+    }
 
-        matrix = matrix.multiply(scale);
-        correctH(matrix);
-        return matrix;
+    public Mesh oYRotation(double angle, Mesh mesh) {
+        return transform(operator.setOYRotation(angle), mesh);
     }
 
-    public Array2DRowRealMatrix oXRotation(double angle, Array2DRowRealMatrix matrix) {
-        final var rotation = new Array2DRowRealMatrix(new double[][] {
-                { 1, 0, 0, 0 },
-                { 0, Math.cos(angle), Math.sin(angle), 0 },
-                { 0, -Math.sin(angle), Math.cos(angle), 0 },
-                { 0, 0, 0, 1 }
-        });
+    public Mesh oZRotation(double angle, Mesh mesh) {
+        return transform(operator.setOZRotation(angle), mesh);
+    }
 
-       return matrix.multiply(rotation);
+    public Mesh mirrorOX(Mesh mesh) {
+        return transform(operator.setMirrorOX(), mesh);
     }
 
-    public Array2DRowRealMatrix oYRotation(double angle, Array2DRowRealMatrix matrix) {
-        final var rotation = new Array2DRowRealMatrix(new double[][] {
-                { Math.cos(angle), 0, -Math.sin(angle), 0 },
-                { 0, 1, 0, 0 },
-                { Math.sin(angle), 0, Math.cos(angle), 0 },
-                { 0, 0, 0, 1 }
-        });
+    public Mesh mirrorOY(Mesh mesh) {
+        return transform(operator.setMirrorOY(), mesh);
+    }
 
-       return matrix.multiply(rotation);
+    public Mesh mirrorOZ(Mesh mesh) {
+        return transform(operator.setMirrorOZ(), mesh);
     }
 
-    public Array2DRowRealMatrix oZRotation(double angle, Array2DRowRealMatrix matrix) {
-        final var rotation = new Array2DRowRealMatrix(new double[][] {
-                { Math.cos(angle), Math.sin(angle), 0, 0 },
-                { -Math.sin(angle), Math.cos(angle), 0, 0 },
-                { 0, 0, 1, 0 },
-                { 0, 0, 0, 1 }
-        });
+    public Mesh transform(Matrix4 operator, Mesh mesh) {
+        final var result = new double[mesh.getNodesCount() * Mesh.NODE_SIZE];
+        operator.transform(mesh, result);
+        return operator.isMirroring() ? mesh.withNodes(result).withReversedWinding() : mesh.withNodes(result);
+    }
+
+    // Allocation-free variants
 
-        return matrix.multiply(rotation);
+    public void perspectiveProjection(Mesh mesh, double[] destination) {
+        operator.setPerspective().transform(mesh, destination);
     }
 
-    public Array2DRowRealMatrix mirrorOX(Array2DRowRealMatrix matrix) {
-        final var mirror = new Array2DRowRealMatrix(new double[][] {
-                { -1, 0, 0, 0 },
-                { 0, 1, 0, 0 },
-                { 0, 0, 1, 0 },
-                { 0, 0, 0, 1 }
-        });
+    public void move(double dx, double dy, Mesh mesh, double[] destination) {
+        operator.setMove(dx, dy).transform(mesh, destination);
+    }
 
-        return matrix.multiply(mirror);
+    public void scale(double scaleFactor, Mesh mesh, double[] destination) {
+        operator.setScale(scaleFactor).transform(mesh, destination);
     }
 
-    public Array2DRowRealMatrix mirrorOY(Array2DRowRealMatrix matrix) {
-        final var mirror = new Array2DRowRealMatrix(new double[][] {
-                { 1, 0, 0, 0 },
-                { 0, -1, 0, 0 },
-                { 0, 0, 1, 0 },
-                { 0, 0, 0, 1 }
-        });
+    public void oXRotation(double angle, Mesh mesh, double[] destination) {
+        operator.setOXRotation(angle).transform(mesh, destination);
+    }
+
+    public void oYRotation(double angle, Mesh mesh, double[] destination) {
+        operator.setOYRotation(angle).transform(mesh, destination);
+    }
 
-        return matrix.multiply(mirror);
+    public void oZRotation(double angle, Mesh mesh, double[] destination) {
+        operator.setOZRotation(angle).transform(mesh, destination);
     }
 
-    public Array2DRowRealMatrix mirrorOZ(Array2DRowRealMatrix matrix) {
-        final var mirror = new Array2DRowRealMatrix(new double[][] {
-                { 1, 0, 0, 0 },
-                { 0, 1, 0, 0 },
-                { 0, 0, -1, 0 },
-                { 0, 0, 0, 1 }
-        });
+    public void mirrorOX(Mesh mesh, double[] destination) {
+        operator.setMirrorOX().transform(mesh, destination);
+    }
+
+    public void mirrorOY(Mesh mesh, double[] destination) {
+        operator.setMirrorOY().transform(mesh, destination);
+    }
 
-        return matrix.multiply(mirror);
+    public void mirrorOZ(Mesh mesh, double[] destination) {
+        operator.setMirrorOZ().transform(mesh, destination);
     }
 
-    private void correctH(Array2DRowRealMatrix matrix) {
-        for(int i = 0; i < matrix.getRowDimension(); i++) {
-            matrix.setEntry(i, 0, matrix.getEntry(i, 0) / matrix.getEntry(i, 3));
-            matrix.setEntry(i, 1, matrix.getEntry(i, 1) / matrix.getEntry(i, 3));
-            matrix.setEntry(i, 2, matrix.getEntry(i, 2) / matrix.getEntry(i, 3));
-            matrix.setEntry(i, 3, 1);
-        }
+    public void transform(Matrix4 operator, Mesh mesh, double[] destination) {
+        operator.transform(mesh, destination);
     }
 
 }
@@ -0,0 +1,419 @@
+package app.AffineOperations;
+
+import app.Mesh;
+
+// Fixed-size 4x4 operator. Nodes are row vectors (x, y, z, 1) multiplied from the left,
+// the same convention the affine operators always used. All operations work in place.
+public final class Matrix4 {
+
+    // Distance from the projection plane z = 0 to the eye of the perspective projection
+    public static final double PERSPECTIVE_DISTANCE = 300;
+
+    // Entries of a packed matrix, row by row
+    public static final int SIZE = 16;
+
+    // Vectorized transform loop when the runtime has one, null otherwise
+    private static final TransformKernel KERNEL = TransformKernels.find();
+
+    double m00, m01, m02, m03;
+    double m10, m11, m12, m13;
+    double m20, m21, m22, m23;
+    double m30, m31, m32, m33;
+
+    private double cachedAngle = Double.NaN;
+    private double cachedSin;
+    private double cachedCos = 1;
+
+    public Matrix4() {
+        setIdentity();
+    }
+
+    public Matrix4(Matrix4 other) {
+        set(other);
+    }
+
+    public double get(int row, int column) {
+        switch (row * 4 + column) {
+            case 0: return m00;
+            case 1: return m01;
+            case 2: return m02;
+            case 3: return m03;
+            case 4: return m10;
+            case 5: return m11;
+            case 6: return m12;
+            case 7: return m13;
+            case 8: return m20;
+            case 9: return m21;
+            case 10: return m22;
+            case 11: return m23;
+            case 12: return m30;
+            case 13: return m31;
+            case 14: return m32;
+            case 15: return m33;
+            default: throw new IndexOutOfBoundsException("Unexpected entry: " + row + ", " + column);
+        }
+    }
+
+    // Setters
+
+    public Matrix4 set(Matrix4 other) {
+        return set(other.m00, other.m01, other.m02, other.m03,
+                other.m10, other.m11, other.m12, other.m13,
+                other.m20, other.m21, other.m22, other.m23,
+                other.m30, other.m31, other.m32, other.m33);
+    }
+
+    public Matrix4 set(double m00, double m01, double m02, double m03,
+                       double m10, double m11, double m12, double m13,
+                       double m20, double m21, double m22, double m23,
+                       double m30, double m31, double m32, double m33) {
+        this.m00 = m00; this.m01 = m01; this.m02 = m02; this.m03 = m03;
+        this.m10 = m10; this.m11 = m11; this.m12 = m12; this.m13 = m13;
+        this.m20 = m20; this.m21 = m21; this.m22 = m22; this.m23 = m23;
+        this.m30 = m30; this.m31 = m31; this.m32 = m32; this.m33 = m33;
+        return this;
+    }
+
+    public Matrix4 set(double[] source, int offset) {
+        return set(source[offset], source[offset + 1], source[offset + 2], source[offset + 3],
+                source[offset + 4], source[offset + 5], source[offset + 6], source[offset + 7],
+                source[offset + 8], source[offset + 9], source[offset + 10], source[offset + 11],
+                source[offset + 12], source[offset + 13], source[offset + 14], source[offset + 15]);
+    }
+
+    // Writes the SIZE entries row by row
+    public void copyTo(double[] destination, int offset) {
+        destination[offset] = m00; destination[offset + 1] = m01; destination[offset + 2] = m02; destination[offset + 3] = m03;
+        destination[offset + 4] = m10; destination[offset + 5] = m11; destination[offset + 6] = m12; destination[offset + 7] = m13;
+        destination[offset + 8] = m20; destination[offset + 9] = m21; destination[offset + 10] = m22; destination[offset + 11] = m23;
+        destination[offset + 12] = m30; destination[offset + 13] = m31; destination[offset + 14] = m32; destination[offset + 15] = m33;
+    }
+
+    public Matrix4 setIdentity() {
+        return set(1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 0, 1);
+    }
+
+    public Matrix4 setPerspective() {
+        return set(1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, 1, -1d / PERSPECTIVE_DISTANCE,
+                0, 0, 0, 1);
+    }
+
+    public Matrix4 setMove(double dx, double dy) {
+        return set(1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, 1, 0,
+                dx, dy, 0, 1);
+    }
+
+    public Matrix4 setScale(double scaleFactor) {
+        return set(1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 0, 1 / scaleFactor);
+    }
+
+    public Matrix4 setOXRotation(double angle) {
+        updateSinCos(angle);
+        return set(1, 0, 0, 0,
+                0, cachedCos, cachedSin, 0,
+                0, -cachedSin, cachedCos, 0,
+                0, 0, 0, 1);
+    }
+
+    public Matrix4 setOYRotation(double angle) {
+        updateSinCos(angle);
+        return set(cachedCos, 0, -cachedSin, 0,
+                0, 1, 0, 0,
+                cachedSin, 0, cachedCos, 0,
+                0, 0, 0, 1);
+    }
+
+    public Matrix4 setOZRotation(double angle) {
+        updateSinCos(angle);
+        return set(cachedCos, cachedSin, 0, 0,
+                -cachedSin, cachedCos, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 0, 1);
+    }
+
+    public Matrix4 setMirrorOX() {
+        return set(-1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 0, 1);
+    }
+
+    public Matrix4 setMirrorOY() {
+        return set(1, 0, 0, 0,
+                0, -1, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 0, 1);
+    }
+
+    public Matrix4 setMirrorOZ() {
+        return set(1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, -1, 0,
+                0, 0, 0, 1);
+    }
+
+    // Arithmetic
+
+    // this = this * right
+    public Matrix4 multiply(Matrix4 right) {
+        return multiply(this, right, this);
+    }
+
+    // destination = left * right, destination may be either of the operands
+    public static Matrix4 multiply(Matrix4 left, Matrix4 right, Matrix4 destination) {
+        final var a = left;
+        final var b = right;
+
+        return destination.set(
+                a.m00 * b.m00 + a.m01 * b.m10 + a.m02 * b.m20 + a.m03 * b.m30,
+                a.m00 * b.m01 + a.m01 * b.m11 + a.m02 * b.m21 + a.m03 * b.m31,
+                a.m00 * b.m02 + a.m01 * b.m12 + a.m02 * b.m22 + a.m03 * b.m32,
+                a.m00 * b.m03 + a.m01 * b.m13 + a.m02 * b.m23 + a.m03 * b.m33,
+
+                a.m10 * b.m00 + a.m11 * b.m10 + a.m12 * b.m20 + a.m13 * b.m30,
+                a.m10 * b.m01 + a.m11 * b.m11 + a.m12 * b.m21 + a.m13 * b.m31,
+                a.m10 * b.m02 + a.m11 * b.m12 + a.m12 * b.m22 + a.m13 * b.m32,
+                a.m10 * b.m03 + a.m11 * b.m13 + a.m12 * b.m23 + a.m13 * b.m33,
+
+                a.m20 * b.m00 + a.m21 * b.m10 + a.m22 * b.m20 + a.m23 * b.m30,
+                a.m20 * b.m01 + a.m21 * b.m11 + a.m22 * b.m21 + a.m23 * b.m31,
+                a.m20 * b.m02 + a.m21 * b.m12 + a.m22 * b.m22 + a.m23 * b.m32,
+                a.m20 * b.m03 + a.m21 * b.m13 + a.m22 * b.m23 + a.m23 * b.m33,
+
+                a.m30 * b.m00 + a.m31 * b.m10 + a.m32 * b.m20 + a.m33 * b.m30,
+                a.m30 * b.m01 + a.m31 * b.m11 + a.m32 * b.m21 + a.m33 * b.m31,
+                a.m30 * b.m02 + a.m31 * b.m12 + a.m32 * b.m22 + a.m33 * b.m32,
+                a.m30 * b.m03 + a.m31 * b.m13 + a.m32 * b.m23 + a.m33 * b.m33);
+    }
+
+    public Matrix4 multiply(double factor) {
+        return set(m00 * factor, m01 * factor, m02 * factor, m03 * factor,
+                m10 * factor, m11 * factor, m12 * factor, m13 * factor,
+                m20 * factor, m21 * factor, m22 * factor, m23 * factor,
+                m30 * factor, m31 * factor, m32 * factor, m33 * factor);
+    }
+
+    // destination = source^-1, destination may be the source.
+    // Returns false and leaves the destination untouched when the source is singular.
+    public static boolean invert(Matrix4 source, Matrix4 destination) {
+        final var a = source;
+
+        // 2x2 minors of the two upper and the two lower rows
+        final var s0 = a.m00 * a.m11 - a.m10 * a.m01;
+        final var s1 = a.m00 * a.m12 - a.m10 * a.m02;
+        final var s2 = a.m00 * a.m13 - a.m10 * a.m03;
+        final var s3 = a.m01 * a.m12 - a.m11 * a.m02;
+        final var s4 = a.m01 * a.m13 - a.m11 * a.m03;
+        final var s5 = a.m02 * a.m13 - a.m12 * a.m03;
+
+        final var c5 = a.m22 * a.m33 - a.m32 * a.m23;
+        final var c4 = a.m21 * a.m33 - a.m31 * a.m23;
+        final var c3 = a.m21 * a.m32 - a.m31 * a.m22;
+        final var c2 = a.m20 * a.m33 - a.m30 * a.m23;
+        final var c1 = a.m20 * a.m32 - a.m30 * a.m22;
+        final var c0 = a.m20 * a.m31 - a.m30 * a.m21;
+
+        final var determinant = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+        if (determinant == 0 || !Double.isFinite(determinant))
+            return false;
+
+        final var k = 1 / determinant;
+        destination.set(
+                (a.m11 * c5 - a.m12 * c4 + a.m13 * c3) * k,
+                (-a.m01 * c5 + a.m02 * c4 - a.m03 * c3) * k,
+                (a.m31 * s5 - a.m32 * s4 + a.m33 * s3) * k,
+                (-a.m21 * s5 + a.m22 * s4 - a.m23 * s3) * k,
+
+                (-a.m10 * c5 + a.m12 * c2 - a.m13 * c1) * k,
+                (a.m00 * c5 - a.m02 * c2 + a.m03 * c1) * k,
+                (-a.m30 * s5 + a.m32 * s2 - a.m33 * s1) * k,
+                (a.m20 * s5 - a.m22 * s2 + a.m23 * s1) * k,
+
+                (a.m10 * c4 - a.m11 * c2 + a.m13 * c0) * k,
+                (-a.m00 * c4 + a.m01 * c2 - a.m03 * c0) * k,
+                (a.m30 * s4 - a.m31 * s2 + a.m33 * s0) * k,
+                (-a.m20 * s4 + a.m21 * s2 - a.m23 * s0) * k,
+
+                (-a.m10 * c3 + a.m11 * c1 - a.m12 * c0) * k,
+                (a.m00 * c3 - a.m01 * c1 + a.m02 * c0) * k,
+                (-a.m30 * s3 + a.m31 * s1 - a.m32 * s0) * k,
+                (a.m20 * s3 - a.m21 * s1 + a.m22 * s0) * k);
+        return true;
+    }
+
+    // Volume scale of an affine operator as a single length factor,
+    // the cube root of the determinant of its linear part
+    public double getUniformScale() {
+        final var determinant = m00 * (m11 * m22 - m12 * m21)
+                - m01 * (m10 * m22 - m12 * m20)
+                + m02 * (m10 * m21 - m11 * m20);
+
+        return Math.cbrt(Math.abs(determinant)) / Math.abs(m33);
+    }
+
+    // Whether an affine operator turns the space inside out, reversing the winding of
+    // polygons. The homogeneous coordinate scales all three axes at once, so its sign counts.
+    public boolean isMirroring() {
+        final var determinant = m00 * (m11 * m22 - m12 * m21)
+                - m01 * (m10 * m22 - m12 * m20)
+                + m02 * (m10 * m21 - m11 * m20);
+
+        return determinant * m33 < 0;
+    }
+
+    // Transforms every node of the mesh and divides by the homogeneous coordinate.
+    // The destination receives packed x, y, z triples and must hold at least
+    // mesh.getNodesCount() * Mesh.NODE_SIZE values.
+    public void transform(Mesh mesh, double[] destination) {
+        transform(mesh, destination, 0);
+    }
+
+    // Same as above, the first node goes to destination[offset]
+    public void transform(Mesh mesh, double[] destination, int offset) {
+        mesh.transform(this, destination, offset, 0, 0);
+    }
+
+    // Same as above, followed by the viewport mapping: the offsets are added to x and y
+    public void transform(Mesh mesh, double[] destination, int offset, double xOffset, double yOffset) {
+        mesh.transform(this, destination, offset, xOffset, yOffset);
+    }
+
+    // Fused kernel over count packed x, y, z triples: the operator, the homogeneous divide
+    // and the viewport offsets in a single pass. An affine operator has a constant homogeneous
+    // coordinate, which is folded into the entries, so its loop has no divide at all.
+    // On Java 17 with the jdk.incubator.vector module, the vectorized kernel takes the nodes
+    // first and these portable loops finish the last few. They count nodes rather than step
+    // two array indices, which lets the JIT prove every access in bounds before the loop.
+    public void transform(double[] source, int sourceOffset, int count,
+                          double[] destination, int destinationOffset, double xOffset, double yOffset) {
+        final var first = KERNEL != null
+                ? KERNEL.transform(this, source, sourceOffset, count, destination, destinationOffset, xOffset, yOffset)
+                : 0;
+
+        if (isAffine()) {
+            final var k = 1 / m33;
+            final var a00 = m00 * k; final var a01 = m01 * k; final var a02 = m02 * k;
+            final var a10 = m10 * k; final var a11 = m11 * k; final var a12 = m12 * k;
+            final var a20 = m20 * k; final var a21 = m21 * k; final var a22 = m22 * k;
+            final var a30 = m30 * k + xOffset; final var a31 = m31 * k + yOffset; final var a32 = m32 * k;
+
+            for (var node = first; node < count; node++) {
+                final var i = sourceOffset + node * Mesh.NODE_SIZE;
+                final var j = destinationOffset + node * Mesh.NODE_SIZE;
+                final var x = source[i];
+                final var y = source[i + 1];
+                final var z = source[i + 2];
+
+                destination[j] = x * a00 + y * a10 + z * a20 + a30;
+                destination[j + 1] = x * a01 + y * a11 + z * a21 + a31;
+                destination[j + 2] = x * a02 + y * a12 + z * a22 + a32;
+            }
+            return;
+        }
+
+        // Locals keep the entries in registers for the whole loop
+        final var a00 = m00; final var a01 = m01; final var a02 = m02; final var a03 = m03;
+        final var a10 = m10; final var a11 = m11; final var a12 = m12; final var a13 = m13;
+        final var a20 = m20; final var a21 = m21; final var a22 = m22; final var a23 = m23;
+        final var a30 = m30; final var a31 = m31; final var a32 = m32; final var a33 = m33;
+
+        for (var node = first; node < count; node++) {
+            final var i = sourceOffset + node * Mesh.NODE_SIZE;
+            final var j = destinationOffset + node * Mesh.NODE_SIZE;
+            final var x = source[i];
+            final var y = source[i + 1];
+            final var z = source[i + 2];
+            final var k = 1 / (x * a03 + y * a13 + z * a23 + a33);
+
+            destination[j] = (x * a00 + y * a10 + z * a20 + a30) * k + xOffset;
+            destination[j + 1] = (x * a01 + y * a11 + z * a21 + a31) * k + yOffset;
+            destination[j + 2] = (x * a02 + y * a12 + z * a22 + a32) * k;
+        }
+    }
+
+    // Same as above for single precision nodes, always with the portable loops: widening
+    // the floats in vectors cost more than it saved
+    public void transform(float[] source, int sourceOffset, int count,
+                          double[] destination, int destinationOffset, double xOffset, double yOffset) {
+        if (isAffine()) {
+            final var k = 1 / m33;
+            final var a00 = m00 * k; final var a01 = m01 * k; final var a02 = m02 * k;
+            final var a10 = m10 * k; final var a11 = m11 * k; final var a12 = m12 * k;
+            final var a20 = m20 * k; final var a21 = m21 * k; final var a22 = m22 * k;
+            final var a30 = m30 * k + xOffset; final var a31 = m31 * k + yOffset; final var a32 = m32 * k;
+
+            for (var node = 0; node < count; node++) {
+                final var i = sourceOffset + node * Mesh.NODE_SIZE;
+                final var j = destinationOffset + node * Mesh.NODE_SIZE;
+                final double x = source[i];
+                final double y = source[i + 1];
+                final double z = source[i + 2];
+
+                destination[j] = x * a00 + y * a10 + z * a20 + a30;
+                destination[j + 1] = x * a01 + y * a11 + z * a21 + a31;
+                destination[j + 2] = x * a02 + y * a12 + z * a22 + a32;
+            }
+            return;
+        }
+
+        final var a00 = m00; final var a01 = m01; final var a02 = m02; final var a03 = m03;
+        final var a10 = m10; final var a11 = m11; final var a12 = m12; final var a13 = m13;
+        final var a20 = m20; final var a21 = m21; final var a22 = m22; final var a23 = m23;
+        final var a30 = m30; final var a31 = m31; final var a32 = m32; final var a33 = m33;
+
+        for (var node = 0; node < count; node++) {
+            final var i = sourceOffset + node * Mesh.NODE_SIZE;
+            final var j = destinationOffset + node * Mesh.NODE_SIZE;
+            final double x = source[i];
+            final double y = source[i + 1];
+            final double z = source[i + 2];
+            final var k = 1 / (x * a03 + y * a13 + z * a23 + a33);
+
+            destination[j] = (x * a00 + y * a10 + z * a20 + a30) * k + xOffset;
+            destination[j + 1] = (x * a01 + y * a11 + z * a21 + a31) * k + yOffset;
+            destination[j + 2] = (x * a02 + y * a12 + z * a22 + a32) * k;
+        }
+    }
+
+    // Transforms a single point and divides by the homogeneous coordinate
+    public void transform(double x, double y, double z, double[] destination, int offset) {
+        final var h = x * m03 + y * m13 + z * m23 + m33;
+        destination[offset] = (x * m00 + y * m10 + z * m20 + m30) / h;
+        destination[offset + 1] = (x * m01 + y * m11 + z * m21 + m31) / h;
+        destination[offset + 2] = (x * m02 + y * m12 + z * m22 + m32) / h;
+    }
+
+    public boolean isAffine() {
+        return m03 == 0 && m13 == 0 && m23 == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Matrix4[" + m00 + ", " + m01 + ", " + m02 + ", " + m03 + "; "
+                + m10 + ", " + m11 + ", " + m12 + ", " + m13 + "; "
+                + m20 + ", " + m21 + ", " + m22 + ", " + m23 + "; "
+                + m30 + ", " + m31 + ", " + m32 + ", " + m33 + "]";
+    }
+
+    // Helpers
+
+    private void updateSinCos(double angle) {
+        if (angle == cachedAngle)
+            return;
+
+        cachedAngle = angle;
+        cachedSin = Math.sin(angle);
+        cachedCos = Math.cos(angle);
+    }
+
+}
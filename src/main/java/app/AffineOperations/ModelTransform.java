@@ -0,0 +1,69 @@
+package app.AffineOperations;
+
+// Accumulates every transformation of a figure into a single 4x4 operator,
+// so the original nodes stay untouched and are transformed once per frame.
+public final class ModelTransform {
+
+    private final Matrix4 matrix = new Matrix4();
+    private final Matrix4 perspectiveMatrix = new Matrix4();
+    private final Matrix4 operator = new Matrix4();
+
+    public void reset() {
+        matrix.setIdentity();
+    }
+
+    public void move(double dx, double dy) {
+        compose(operator.setMove(dx, dy));
+    }
+
+    public void scale(double scaleFactor) {
+        compose(operator.setScale(scaleFactor));
+    }
+
+    public void oXRotation(double angle) {
+        compose(operator.setOXRotation(angle));
+    }
+
+    public void oYRotation(double angle) {
+        compose(operator.setOYRotation(angle));
+    }
+
+    public void oZRotation(double angle) {
+        compose(operator.setOZRotation(angle));
+    }
+
+    public void mirrorOX() {
+        compose(operator.setMirrorOX());
+    }
+
+    public void mirrorOY() {
+        compose(operator.setMirrorOY());
+    }
+
+    public void mirrorOZ() {
+        compose(operator.setMirrorOZ());
+    }
+
+    // The returned matrices are owned by the transform and must not be modified
+
+    public Matrix4 getMatrix() {
+        return matrix;
+    }
+
+    public Matrix4 getPerspectiveMatrix() {
+        return Matrix4.multiply(matrix, operator.setPerspective(), perspectiveMatrix);
+    }
+
+    // Helpers
+
+    private void compose(Matrix4 operator) {
+        matrix.multiply(operator);
+
+        // Scaling only touches the homogeneous coordinate, keep it normalized
+        // so repeated zooming does not drift towards overflow or underflow.
+        final var h = matrix.m33;
+        if (h != 0 && h != 1)
+            matrix.multiply(1 / h);
+    }
+
+}
@@ -0,0 +1,10 @@
+package app.AffineOperations;
+
+// Vectorized loop behind the packed Matrix4.transform kernel of double precision nodes. A kernel may
+// stop short of count: it returns the number of nodes it transformed, the portable loop does the rest.
+interface TransformKernel {
+
+    int transform(Matrix4 operator, double[] source, int sourceOffset, int count,
+                  double[] destination, int destinationOffset, double xOffset, double yOffset);
+
+}
@@ -0,0 +1,14 @@
+package app.AffineOperations;
+
+// Picks the transform kernel of the runtime. Java 11 only has the portable loops of Matrix4,
+// a multi-release jar replaces this class on Java 17 with one that may find a vectorized kernel.
+final class TransformKernels {
+
+    private TransformKernels() {
+    }
+
+    static TransformKernel find() {
+        return null;
+    }
+
+}
@@ -0,0 +1,268 @@
+package app;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Byte-level tokenizer for line based text mesh formats. A text file is split into
+// memory-mapped chunks that end on line boundaries, so the chunks can be scanned
+// independently and no part of the file is ever decoded into Strings.
+final class AsciiScanner {
+
+    static final int CHUNK_SIZE = 16 * 1024 * 1024;
+
+    // Exactly representable powers of ten. mantissa * 10^e is correctly rounded while the mantissa
+    // fits into 53 bits, longer ones are off by an ulp of a double at most, far below float precision.
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ByteBuffer buffer;
+    private final Path file;
+    private final long offset;
+    private final int limit;
+    private int position;
+
+    private AsciiScanner(ByteBuffer buffer, Path file, long offset) {
+        this.buffer = buffer;
+        this.file = file;
+        this.offset = offset;
+        this.limit = buffer.limit();
+    }
+
+    static List<AsciiScanner> split(FileChannel channel, Path file) throws IOException {
+        final var size = channel.size();
+        final var scanners = new ArrayList<AsciiScanner>();
+        final var probe = ByteBuffer.allocate(4096);
+
+        var start = 0L;
+        while (start < size) {
+            var end = Math.min(size, start + CHUNK_SIZE);
+
+            // Move the end of the chunk past the next line break
+            search:
+            while (end < size) {
+                probe.clear();
+                final var read = channel.read(probe, end);
+                for (var i = 0; i < read; i++)
+                    if (probe.get(i) == '\n') {
+                        end += i + 1;
+                        break search;
+                    }
+
+                end += read;
+            }
+
+            final var chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            scanners.add(new AsciiScanner(chunk, file, start));
+            start = end;
+        }
+
+        return scanners;
+    }
+
+    void rewind() {
+        position = 0;
+    }
+
+    boolean hasRemaining() {
+        return position < limit;
+    }
+
+    void skipSpaces() {
+        while (position < limit) {
+            final var c = buffer.get(position);
+            if (c != ' ' && c != '\t' && c != '\r')
+                return;
+
+            position++;
+        }
+    }
+
+    void skipLine() {
+        while (position < limit && buffer.get(position++) != '\n') {
+        }
+    }
+
+    void skipToken() {
+        while (position < limit && !isSpace(buffer.get(position)))
+            position++;
+    }
+
+    // Line breaks and comments end the meaningful part of a line
+    boolean isLineEnd() {
+        if (position == limit)
+            return true;
+
+        final var c = buffer.get(position);
+        return c == '\n' || c == '\r' || c == '#';
+    }
+
+    // Consumes the keyword if it is the next token, case-insensitively
+    boolean skipKeyword(String token) {
+        if (position + token.length() > limit)
+            return false;
+
+        for (var i = 0; i < token.length(); i++)
+            if (Character.toLowerCase(buffer.get(position + i)) != token.charAt(i))
+                return false;
+
+        if (position + token.length() < limit && !isSpace(buffer.get(position + token.length())))
+            return false;
+
+        position += token.length();
+        return true;
+    }
+
+    // Tokens left on the current line, the position is not moved
+    int countTokens() {
+        final var start = position;
+        var count = 0;
+
+        while (true) {
+            skipSpaces();
+            if (isLineEnd())
+                break;
+
+            skipToken();
+            count++;
+        }
+
+        position = start;
+        return count;
+    }
+
+    int parseInt() {
+        skipSpaces();
+        final var start = position;
+
+        var negative = false;
+        if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+'))
+            negative = buffer.get(position++) == '-';
+
+        var result = 0L;
+        final var digitsStart = position;
+        while (position < limit && isDigit(buffer.get(position)) && result <= Integer.MAX_VALUE)
+            result = result * 10 + (buffer.get(position++) - '0');
+
+        if (position == digitsStart || result > Integer.MAX_VALUE)
+            throw malformed("integer", start);
+
+        return (int) (negative ? -result : result);
+    }
+
+    double parseDouble() {
+        skipSpaces();
+        final var start = position;
+
+        var negative = false;
+        if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+'))
+            negative = buffer.get(position++) == '-';
+
+        // Up to 18 significant digits fit into a long, the rest only moves the exponent
+        var mantissa = 0L;
+        var significantDigits = 0;
+        var exponent = 0;
+        var hasDigits = false;
+
+        while (position < limit && isDigit(buffer.get(position))) {
+            if (significantDigits < 18) {
+                mantissa = mantissa * 10 + (buffer.get(position) - '0');
+                if (mantissa != 0)
+                    significantDigits++;
+            }
+            else
+                exponent++;
+
+            position++;
+            hasDigits = true;
+        }
+
+        if (position < limit && buffer.get(position) == '.') {
+            position++;
+            while (position < limit && isDigit(buffer.get(position))) {
+                if (significantDigits < 18) {
+                    mantissa = mantissa * 10 + (buffer.get(position) - '0');
+                    if (mantissa != 0)
+                        significantDigits++;
+                    exponent--;
+                }
+
+                position++;
+                hasDigits = true;
+            }
+        }
+
+        if (!hasDigits)
+            throw malformed("number", start);
+
+        if (position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            position++;
+            var negativeExponent = false;
+            if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+'))
+                negativeExponent = buffer.get(position++) == '-';
+
+            final var exponentStart = position;
+            var value = 0;
+            while (position < limit && isDigit(buffer.get(position))) {
+                if (value < 10000)
+                    value = value * 10 + (buffer.get(position) - '0');
+                position++;
+            }
+
+            if (position == exponentStart)
+                throw malformed("number", start);
+
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (position < limit && !isSpace(buffer.get(position)) && buffer.get(position) != '#')
+            throw malformed("number", start);
+
+        final double result;
+        if (mantissa == 0)
+            result = 0;
+        else if (exponent >= 0 && exponent < POWERS_OF_TEN.length)
+            result = mantissa * POWERS_OF_TEN[exponent];
+        else if (exponent < 0 && -exponent < POWERS_OF_TEN.length)
+            result = mantissa / POWERS_OF_TEN[-exponent];
+        else
+            return Double.parseDouble(text(start, position));
+
+        return negative ? -result : result;
+    }
+
+    UncheckedIOException error(String message) {
+        return new UncheckedIOException(new IOException(message + " at byte " + (offset + position) + ": " + file));
+    }
+
+    // Helpers
+
+    private UncheckedIOException malformed(String what, int start) {
+        position = start;
+        return error("Malformed " + what);
+    }
+
+    private String text(int from, int to) {
+        final var bytes = new byte[to - from];
+        for (var i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(from + i);
+
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+}
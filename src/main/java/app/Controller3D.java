@@ -1,104 +1,401 @@
 package app;
 
-import app.AffineOperations.AffineOperations;
-import app.AffineOperations.AffineOperationsImpl;
+import app.AffineOperations.Matrix4;
+import app.AffineOperations.ModelTransform;
+import app.Profiling.FrameStatistics;
+import app.Profiling.FrameTimings;
+import app.Profiling.Profiler;
+import app.Profiling.RenderStage;
+import app.Rendering.DetailSelector;
+import app.Rendering.Frame;
+import app.Rendering.FrameRequest;
+import app.Rendering.PickResult;
+import app.Rendering.Picker;
+import app.Rendering.Rasterizer;
+import app.Rendering.RenderMode;
+import app.Rendering.RenderScheduler;
+import app.Rendering.RenderWorker;
+import app.SceneGraph.Frustum;
+import app.SceneGraph.Instance;
+import app.SceneGraph.SceneGraph;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.Menu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.SeparatorMenuItem;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.*;
 import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.ArrayRealVector;
-import org.apache.commons.math3.linear.RealVector;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 public final class Controller3D {
 
-    @FXML Canvas canvas;
-
-    AffineOperations affineOperationsImpl = new AffineOperationsImpl();
+    private static final int MAX_SEGMENTS_IN_PATH = 8192;
+    private static final String SAVED_MESHES_DIRECTORY = "SavedNodes";
+    private static final double LOADED_MESH_RADIUS = 150;
+    private static final int SCENE_GRID_SIZE = 10;
+    private static final double SCENE_SPACING = 50;
+    private static final double SCENE_INSTANCE_RADIUS = 20;
+    private static final double SCENE_SPIN_SPEED = 1;
+    private static final double SCENE_BOB_HEIGHT = 5;
+    private static final Color PICKED_POLYGON_COLOR = Color.ORANGE;
+    private static final Color STATISTICS_COLOR = Color.WHITE;
+    private static final Font STATISTICS_FONT = Font.font("Monospaced", 12);
+    private static final double STATISTICS_LINE_HEIGHT = 16;
 
-    Figure currentFigure;
-    Array2DRowRealMatrix nodes;
-    ArrayList<Polygon> polygons;
+    @FXML Canvas canvas;
+    @FXML Menu showMenu;
+    @FXML CheckMenuItem automaticDetailMenuItem;
+    @FXML CheckMenuItem animateSceneMenuItem;
+    @FXML CheckMenuItem statisticsMenuItem;
+    @FXML CheckMenuItem fourViewsMenuItem;
+
+    ModelTransform modelTransform = new ModelTransform();
+    MeshCache meshCache = new MeshCache();
+    RenderScheduler renderScheduler = new RenderScheduler(this::redrawCanvas);
+    RenderWorker renderWorker = new RenderWorker(renderScheduler::requestRenderLater);
+    Rasterizer rasterizer = new Rasterizer();
+
+    // Perspective, front, top and side views side by side, composed by the render worker
+    boolean isMultiView = false;
+
+    PixelBuffer<IntBuffer> pixelBuffer;
+    WritableImage image;
+
+    MeshGenerator currentFigure;
+    int currentResolution;
+    Mesh mesh;
+
+    // Meshes are generated in the background, only the latest change is shown
+    int meshChanges;
+
+    // Levels of detail of the current shape, null until they are built in the background.
+    // The selectors are only called by the render worker, the frames bring their choice back.
+    LodChain lodChain;
+    Object lodChainSource;
+    boolean isAutomaticDetail = true;
+
+    // The sphere without poles is refined face by face instead of by whole levels
+    SphereSubdivision sphereSubdivision;
+
+    // Instances of the current mesh, null while a single shape is shown.
+    // The model transform is the view of the whole scene then.
+    SceneGraph sceneGraph;
+    Frustum frustum = new Frustum();
+    Matrix4 sceneMatrix = new Matrix4();
+    Mesh[] sceneMeshes = new Mesh[0];
+    Instance[] sceneInstances = new Instance[0];
+    double[] sceneMatrices = new double[0];
+    int sceneItemsCount;
+    AnimationTimer sceneAnimation;
+
+    // Polygon picked with a click, highlighted while its mesh is shown
+    FrameRequest lastRequest;
+    Mesh pickedMesh;
+    Instance pickedInstance;
+    int pickedPolygon = -1;
+    int pickedItem = -1;
+
+    // Stages timed on the UI thread are added to the ones of the frame
+    FrameStatistics frameStatistics = new FrameStatistics();
+    FrameTimings presentedTimings = new FrameTimings();
+    long cullNanos;
 
     Point pointWhereDraggingStarted;
-    Array2DRowRealMatrix figureMiddlePoint;
 
     boolean isPerspectiveProjection = false;
     boolean isRobertsAlgorithmEnabled = true;
+    RenderMode renderMode = RenderMode.WIREFRAME;
 
     public void setUpScene(Scene scene) {
         final var gc = canvas.getGraphicsContext2D();
         gc.setFill(Color.BLACK);
         gc.setStroke(Color.GREEN);
+        renderWorker.start();
+        addGeneratorMenuItems();
         onShowPyramidClick();
     }
 
+    // Generators found as services follow the built-in figures
+    private void addGeneratorMenuItems() {
+        final var generators = MeshGenerators.getAll();
+        if (generators.isEmpty())
+            return;
+
+        showMenu.getItems().add(new SeparatorMenuItem());
+        for (final var generator : generators) {
+            final var item = new MenuItem(generator.getName());
+            item.setOnAction(e -> changeFigure(generator));
+            showMenu.getItems().add(item);
+        }
+    }
+
     // Drawing Logic
 
+    private void requestFrame() {
+        // Nothing to show before the first mesh is generated
+        if (mesh == null)
+            return;
+
+        if (sceneGraph != null) {
+            requestSceneFrame();
+            return;
+        }
+
+        pickedItem = 0;
+        submit(new FrameRequest(mesh, getDetailSelector(), modelTransform.getMatrix(), isPerspectiveProjection,
+                isRobertsAlgorithmEnabled, canvas.getWidth(), canvas.getHeight()));
+    }
+
+    private DetailSelector getDetailSelector() {
+        if (!isAutomaticDetail)
+            return null;
+
+        return sphereSubdivision != null ? sphereSubdivision : lodChain;
+    }
+
+    // Only the instances the frustum does not reject go to the pipeline,
+    // each with its instance matrix followed by the view
+    private void requestSceneFrame() {
+        final var width = canvas.getWidth();
+        final var height = canvas.getHeight();
+
+        sceneItemsCount = 0;
+        pickedItem = -1;
+
+        final var start = Profiler.begin();
+        if (isMultiView) {
+            // The other views see what the frustum of one view rejects
+            for (var i = 0; i < sceneGraph.getInstancesCount(); i++)
+                addSceneItem(sceneGraph.getInstance(i));
+        }
+        else
+            sceneGraph.cull(frustum.set(modelTransform.getMatrix(), isPerspectiveProjection, width, height), this::addSceneItem);
+        cullNanos = start != 0 ? System.nanoTime() - start : 0;
+
+        submit(new FrameRequest(sceneMeshes, sceneMatrices, sceneItemsCount, isPerspectiveProjection,
+                isRobertsAlgorithmEnabled, width, height));
+    }
+
+    private void submit(FrameRequest request) {
+        lastRequest = request;
+        renderWorker.submit(isMultiView ? request.withViews(renderMode) : request);
+    }
+
+    private void addSceneItem(Instance instance) {
+        if (sceneItemsCount == sceneMeshes.length) {
+            sceneMeshes = Arrays.copyOf(sceneMeshes, Math.max(16, sceneItemsCount * 2));
+            sceneMatrices = Arrays.copyOf(sceneMatrices, sceneMeshes.length * Matrix4.SIZE);
+            sceneInstances = Arrays.copyOf(sceneInstances, sceneMeshes.length);
+        }
+
+        if (instance == pickedInstance)
+            pickedItem = sceneItemsCount;
+
+        Matrix4.multiply(instance.getMatrix(), modelTransform.getMatrix(), sceneMatrix).copyTo(sceneMatrices, sceneItemsCount * Matrix4.SIZE);
+        sceneMeshes[sceneItemsCount] = instance.getMesh();
+        sceneInstances[sceneItemsCount++] = instance;
+    }
+
     private void redrawCanvas() {
+        // A frame of the other layout may still come after switching between one and four views
+        final var frame = renderWorker.takeLatestFrame();
+        if (frame == null || frame.isComposed() != isMultiView)
+            return;
+
+        // The mesh the worker selected is the current one, unless the shape changed in the meantime
+        if (frame.getDetailSelector() != null && frame.getDetailSelector() == getDetailSelector()) {
+            mesh = frame.getMesh(0);
+            currentResolution = frame.getResolution();
+        }
+
+        final var start = Profiler.begin();
+        final var allocatedBytes = Profiler.getAllocatedBytes();
+
+        if (frame.isComposed())
+            drawComposedFrame(frame);
+        else {
+            if (renderMode != RenderMode.WIREFRAME)
+                drawFilledFrame(frame);
+            else
+                drawWireframe(frame);
+
+            drawPickedPolygon(frame);
+        }
+
+        if (start != 0) {
+            frame.getTimings().copyTo(presentedTimings);
+            presentedTimings.add(RenderStage.CULL, cullNanos);
+            presentedTimings.end(RenderStage.DRAW, start);
+            presentedTimings.addAllocatedBytesSince(allocatedBytes);
+            recordStatistics(frame);
+        }
+    }
+
+    private void drawComposedFrame(Frame frame) {
+        final var width = (int) frame.getWidth();
+        final var height = (int) frame.getHeight();
+        if (width <= 0 || height <= 0)
+            return;
+
+        preparePixelBuffer(width, height);
+        pixelBuffer.updateBuffer(buffer -> {
+            final var target = buffer.getBuffer().duplicate();
+            target.clear();
+            target.put(frame.getPixels(), 0, width * height);
+            return null;
+        });
+
         final var gc = canvas.getGraphicsContext2D();
-        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.drawImage(image, 0, 0);
+
+        // Labels go to the bottom of the views, the statistics are at the top
+        gc.save();
+        gc.setFill(STATISTICS_COLOR);
+        gc.setFont(STATISTICS_FONT);
+        for (var i = 0; i < frame.getViewsCount(); i++)
+            gc.fillText(frame.getView(i).getLabel(), frame.getViewX(i) + STATISTICS_LINE_HEIGHT / 2,
+                    frame.getViewY(i) + frame.getViewHeight(i) - STATISTICS_LINE_HEIGHT / 2);
+        gc.restore();
+    }
+
+    private void recordStatistics(Frame frame) {
+        var polygons = 0;
+        for (var item = 0; item < frame.getItemsCount(); item++)
+            polygons += frame.getMesh(item).getPolygonsCount();
+
+        final var culledInstances = sceneGraph != null ? sceneGraph.getInstancesCount() - frame.getItemsCount() : 0;
+        frameStatistics.record(presentedTimings, polygons, culledInstances);
 
-        final var xOffset = canvas.getWidth() / 2;
-        final var yOffset = canvas.getHeight() / 2;
+        if (statisticsMenuItem.isSelected())
+            drawStatistics();
+    }
+
+    private void drawStatistics() {
+        final var s = frameStatistics;
+        final var lines = new String[] {
+                String.format("%.0f fps, frame p50 %.2f ms, p99 %.2f ms",
+                        s.getFramesPerSecond(), s.getFrameTimeP50() / 1e6, s.getFrameTimeP99() / 1e6),
+                formatStageTimes(s),
+                String.format("%d polygons, %d instances culled, %d KB allocated per frame",
+                        s.getPolygons(), s.getCulledInstances(), s.getAllocatedBytesPerFrame() / 1024)
+        };
+
+        final var gc = canvas.getGraphicsContext2D();
+        gc.save();
+        gc.setFill(STATISTICS_COLOR);
+        gc.setFont(STATISTICS_FONT);
+        for (var i = 0; i < lines.length; i++)
+            gc.fillText(lines[i], STATISTICS_LINE_HEIGHT / 2, STATISTICS_LINE_HEIGHT * (i + 1));
+        gc.restore();
+    }
 
-        var nodes = this.nodes;
-        if(isPerspectiveProjection)
-            nodes = affineOperationsImpl.perspectiveProjection(nodes);
+    private static String formatStageTimes(FrameStatistics statistics) {
+        final var result = new StringBuilder("p50");
+        for (final var stage : RenderStage.values())
+            result.append(String.format(" %s %.2f ms", stage.getLabel().toLowerCase(), statistics.getStageTimeP50(stage) / 1e6));
+
+        return result.toString();
+    }
+
+    private void drawWireframe(Frame frame) {
+        final var gc = canvas.getGraphicsContext2D();
+        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
 
-        final var shouldDrawPolygon = calculateVisiblePolygons(nodes);
+        // Every visible edge is drawn once, batched into a few long paths
+        // instead of one canvas command per polygon side.
+        final var nodes = frame.getNodes();
+        var segmentsInPath = 0;
 
-        for (var i = 0; i < polygons.size(); i++) {
-            if (isRobertsAlgorithmEnabled && shouldDrawPolygon.getEntry(i) < 0)
-                continue;
+        gc.beginPath();
+        for (var item = 0; item < frame.getItemsCount(); item++) {
+            final var edges = frame.getMesh(item).getEdges();
+            final var nodesOffset = frame.getNodesOffset(item) * Mesh.NODE_SIZE;
 
-            final var polygon = polygons.get(i);
+            for (var i = 0; i < edges.getEdgesCount(); i++) {
+                if (!frame.isEdgeVisible(item, i))
+                    continue;
 
-            gc.strokeLine(nodes.getEntry(polygon.p1, 0) + xOffset, nodes.getEntry(polygon.p1, 1) + yOffset,
-                    nodes.getEntry(polygon.p2, 0) + xOffset, nodes.getEntry(polygon.p2, 1) + yOffset);
+                final var from = edges.getFrom(i) * Mesh.NODE_SIZE + nodesOffset;
+                final var to = edges.getTo(i) * Mesh.NODE_SIZE + nodesOffset;
 
-            gc.strokeLine(nodes.getEntry(polygon.p2, 0) + xOffset, nodes.getEntry(polygon.p2, 1) + yOffset,
-                    nodes.getEntry(polygon.p3, 0) + xOffset, nodes.getEntry(polygon.p3, 1) + yOffset);
+                gc.moveTo(nodes[from], nodes[from + 1]);
+                gc.lineTo(nodes[to], nodes[to + 1]);
 
-            gc.strokeLine(nodes.getEntry(polygon.p3, 0) + xOffset, nodes.getEntry(polygon.p3, 1) + yOffset,
-                    nodes.getEntry(polygon.p1, 0) + xOffset, nodes.getEntry(polygon.p1, 1) + yOffset);
+                if (++segmentsInPath == MAX_SEGMENTS_IN_PATH) {
+                    gc.stroke();
+                    gc.beginPath();
+                    segmentsInPath = 0;
+                }
+            }
         }
+        gc.stroke();
     }
 
-    private RealVector calculateVisiblePolygons(Array2DRowRealMatrix nodes) {
-        final var figureMatrix = new Array2DRowRealMatrix(4, polygons.size());
+    private void drawFilledFrame(Frame frame) {
+        final var width = (int) frame.getWidth();
+        final var height = (int) frame.getHeight();
+        if (width <= 0 || height <= 0)
+            return;
 
-        for (var i = 0; i < polygons.size(); i++) {
-            final var p1 = nodes.getRow(polygons.get(i).p1);
-            final var p2 = nodes.getRow(polygons.get(i).p2);
-            final var p3 = nodes.getRow(polygons.get(i).p3);
+        preparePixelBuffer(width, height);
+        pixelBuffer.updateBuffer(buffer -> {
+            if (renderMode == RenderMode.PAINTER)
+                rasterizer.paint(frame, buffer.getBuffer(), width, height);
+            else
+                rasterizer.rasterize(frame, buffer.getBuffer(), width, height);
+            return null;
+        });
 
-            final var x = (p2[1] - p1[1]) * (p3[2] - p1[2]) - (p2[2] - p1[2]) * (p3[1] - p1[1]);
-            final var y = -((p2[0] - p1[0]) * (p3[2] - p1[2]) - (p2[2] - p1[2]) * (p3[0] - p1[0]));
-            final var z = (p2[0] - p1[0]) * (p3[1] - p1[1]) - (p2[1] - p1[1]) * (p3[0] - p1[0]);
-            final var d = -(x * p1[0] + y * p1[1] + z * p1[2]);
+        canvas.getGraphicsContext2D().drawImage(image, 0, 0);
+    }
 
-            figureMatrix.setEntry(0, i, x);
-            figureMatrix.setEntry(1, i, y);
-            figureMatrix.setEntry(2, i, z);
-            figureMatrix.setEntry(3, i, d);
+    private void preparePixelBuffer(int width, int height) {
+        if (pixelBuffer == null || pixelBuffer.getWidth() != width || pixelBuffer.getHeight() != height) {
+            final var buffer = ByteBuffer.allocateDirect(width * height * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+            pixelBuffer = new PixelBuffer<>(width, height, buffer, PixelFormat.getIntArgbPreInstance());
+            image = new WritableImage(pixelBuffer);
         }
+    }
+
+    private void drawPickedPolygon(Frame frame) {
+        // The frame may still show the items of an older request
+        if (pickedPolygon < 0 || pickedItem < 0 || pickedItem >= frame.getItemsCount() || frame.getMesh(pickedItem) != pickedMesh)
+            return;
 
-        final var testResult = figureMatrix.preMultiply(figureMiddlePoint);
-        for (var i = 0; i < testResult.getColumnDimension(); i++)
-            if (testResult.getEntry(0, i) > 0)
-                figureMatrix.setColumnVector(i, figureMatrix.getColumnVector(i).mapMultiply(-1));
+        final var nodes = frame.getNodes();
+        final var offset = frame.getNodesOffset(pickedItem) * Mesh.NODE_SIZE;
+        final var p1 = pickedMesh.getP1(pickedPolygon) * Mesh.NODE_SIZE + offset;
+        final var p2 = pickedMesh.getP2(pickedPolygon) * Mesh.NODE_SIZE + offset;
+        final var p3 = pickedMesh.getP3(pickedPolygon) * Mesh.NODE_SIZE + offset;
 
-        final var viewPoint = new ArrayRealVector(new double[] { 0, 0, 30000, 1 });
-        return figureMatrix.preMultiply(viewPoint);
+        final var gc = canvas.getGraphicsContext2D();
+        gc.save();
+        gc.setFill(PICKED_POLYGON_COLOR);
+        gc.fillPolygon(new double[] { nodes[p1], nodes[p2], nodes[p3] }, new double[] { nodes[p1 + 1], nodes[p2 + 1], nodes[p3 + 1] }, 3);
+        gc.restore();
     }
 
     // Mouse Events
@@ -106,52 +403,78 @@ public final class Controller3D {
     @FXML
     private void onCanvasMouseClicked(MouseEvent e) {
         pointWhereDraggingStarted = null;
+        // Picking works in the single view only
+        if (e.isStillSincePress() && lastRequest != null && !isMultiView)
+            pickPolygon(e.getX(), e.getY());
+    }
+
+    // The first pick of a mesh builds its hierarchy, which takes a while for large ones
+    private void pickPolygon(double x, double y) {
+        final var request = lastRequest;
+        final var instances = sceneGraph != null ? Arrays.copyOf(sceneInstances, request.getItemsCount()) : null;
+
+        CompletableFuture.supplyAsync(() -> {
+            final var result = new PickResult();
+            return new Picker().pick(request, x, y, result) ? result : null;
+        }).thenAcceptAsync(result -> {
+            clearPick();
+            if (result != null) {
+                pickedMesh = request.getMesh(result.getItem());
+                pickedInstance = instances != null ? instances[result.getItem()] : null;
+                pickedPolygon = result.getPolygon();
+            }
+
+            requestFrame();
+        }, Platform::runLater).exceptionally(e -> {
+            System.out.println("Whoops, something went wrong: " + e);
+            return null;
+        });
+    }
+
+    private void clearPick() {
+        pickedMesh = null;
+        pickedInstance = null;
+        pickedPolygon = -1;
     }
 
     @FXML
     private void onCanvasMouseDrugged(MouseEvent e) {
-        final var currentPoint = new Point(e.getX(), e.getY());
-
         if (pointWhereDraggingStarted == null) {
-            pointWhereDraggingStarted = currentPoint;
+            pointWhereDraggingStarted = new Point(e.getX(), e.getY());
             return;
         }
 
-        final var dx = currentPoint.x - pointWhereDraggingStarted.x;
-        final var dy = currentPoint.y - pointWhereDraggingStarted.y;
+        final var dx = e.getX() - pointWhereDraggingStarted.x;
+        final var dy = e.getY() - pointWhereDraggingStarted.y;
         final var oneRadian = Math.PI * 2 / 360;
         final var xRadian = oneRadian * -dy * 0.5;
         final var yRadian = oneRadian * dx * 0.5;
 
-        pointWhereDraggingStarted = currentPoint;
+        pointWhereDraggingStarted.x = e.getX();
+        pointWhereDraggingStarted.y = e.getY();
 
-        nodes = affineOperationsImpl.oXRotation(xRadian, nodes);
-        nodes = affineOperationsImpl.oYRotation(yRadian, nodes);
-        figureMiddlePoint = affineOperationsImpl.oXRotation(xRadian, figureMiddlePoint);
-        figureMiddlePoint = affineOperationsImpl.oYRotation(yRadian, figureMiddlePoint);
+        modelTransform.oXRotation(xRadian);
+        modelTransform.oYRotation(yRadian);
 
-        redrawCanvas();
+        requestFrame();
     }
 
     @FXML
     private void onZooming(ZoomEvent z) {
-        nodes = affineOperationsImpl.scale(z.getZoomFactor(), nodes);
-        figureMiddlePoint = affineOperationsImpl.scale(z.getZoomFactor(), figureMiddlePoint);
-        redrawCanvas();
+        modelTransform.scale(z.getZoomFactor());
+        requestFrame();
     }
 
     @FXML
     private void onScrolling(ScrollEvent s) {
-        nodes = affineOperationsImpl.move(s.getDeltaX(), s.getDeltaY(), nodes);
-        figureMiddlePoint = affineOperationsImpl.move(s.getDeltaX(), s.getDeltaY(), figureMiddlePoint);
-        redrawCanvas();
+        modelTransform.move(s.getDeltaX(), s.getDeltaY());
+        requestFrame();
     }
 
     @FXML
     private void onRotating(RotateEvent z) {
-        nodes = affineOperationsImpl.oZRotation(z.getAngle() / 20, nodes);
-        figureMiddlePoint = affineOperationsImpl.oZRotation(z.getAngle() / 20, figureMiddlePoint);
-        redrawCanvas();
+        modelTransform.oZRotation(z.getAngle() / 20);
+        requestFrame();
     }
 
     // Event Handlers
@@ -184,8 +507,8 @@ public final class Controller3D {
     @FXML
     private void onShowSphereWithPolesClick() {
         changeFigure(Figure.SPHERE_WITH_POLES);
-        nodes = affineOperationsImpl.oXRotation(Math.PI / 2, nodes);
-        redrawCanvas();
+        modelTransform.oXRotation(Math.PI / 2);
+        requestFrame();
     }
 
     @FXML
@@ -193,84 +516,331 @@ public final class Controller3D {
         changeFigure(Figure.SPHERE_WITHOUT_POLES);
     }
 
-    private void changeFigure(Figure figure) {
+    private void changeFigure(MeshGenerator figure) {
+        leaveScene();
         currentFigure = figure;
-        final var pair = currentFigure.getNodesAndPolygons();
-        nodes = pair.getKey();
-        polygons = pair.getValue();
-        figureMiddlePoint = new Array2DRowRealMatrix(new double[][] { { 0, 0, 0, 1 } });
-        redrawCanvas();
+        currentResolution = figure.getDefaultResolution();
+        sphereSubdivision = figure == Figure.SPHERE_WITHOUT_POLES ? new SphereSubdivision() : null;
+        modelTransform.reset();
+        changeMesh();
+
+        if (LodChain.isSupported(figure))
+            buildLodChain(figure, () -> LodChain.of(figure, meshCache));
+        else
+            buildLodChain(figure, null);
+    }
+
+    private void buildLodChain(Object source, Supplier<LodChain> factory) {
+        lodChain = null;
+        lodChainSource = source;
+        if (factory == null)
+            return;
+
+        CompletableFuture.supplyAsync(factory).thenAcceptAsync(chain -> {
+            // The shape may have changed while the chain was built
+            if (lodChainSource != source)
+                return;
+
+            lodChain = chain;
+            requestFrame();
+        }, Platform::runLater).exceptionally(e -> {
+            System.out.println("Whoops, something went wrong: " + e);
+            return null;
+        });
+    }
+
+    @FXML
+    private void onAutomaticDetailClick() {
+        isAutomaticDetail = automaticDetailMenuItem.isSelected();
+        requestFrame();
+    }
+
+    @FXML
+    private void onIncreaseDetailClick() {
+        if (currentFigure != null)
+            changeResolution(currentFigure.getFinerResolution(currentResolution));
+    }
+
+    @FXML
+    private void onDecreaseDetailClick() {
+        if (currentFigure != null)
+            changeResolution(currentFigure.getCoarserResolution(currentResolution));
+    }
+
+    private void changeResolution(int resolution) {
+        // Loaded meshes have a single resolution
+        if (currentFigure == null || resolution < currentFigure.getMinResolution() || resolution > currentFigure.getMaxResolution())
+            return;
+
+        // Choosing the detail by hand turns the automatic one off
+        isAutomaticDetail = false;
+        automaticDetailMenuItem.setSelected(false);
+
+        currentResolution = resolution;
+        changeMesh();
+    }
+
+    @FXML
+    private void onSceneInstancesClick() {
+        if (mesh == null)
+            return;
+
+        // A cube of small randomly turned copies of the current mesh, larger than the canvas,
+        // so that culling has something to reject
+        final var random = new Random(1);
+        final var operator = new Matrix4();
+        final var matrix = new Matrix4();
+        final var scale = SCENE_INSTANCE_RADIUS / LOADED_MESH_RADIUS;
+        final var middle = (SCENE_GRID_SIZE - 1) / 2d;
+
+        clearPick();
+        sceneGraph = new SceneGraph();
+        for (var i = 0; i < SCENE_GRID_SIZE; i++)
+            for (var j = 0; j < SCENE_GRID_SIZE; j++)
+                for (var k = 0; k < SCENE_GRID_SIZE; k++) {
+                    matrix.setOXRotation(random.nextDouble() * Math.PI * 2);
+                    matrix.multiply(operator.setOYRotation(random.nextDouble() * Math.PI * 2));
+                    matrix.multiply(operator.setScale(scale));
+                    matrix.multiply(operator.set(
+                            1, 0, 0, 0,
+                            0, 1, 0, 0,
+                            0, 0, 1, 0,
+                            (i - middle) * SCENE_SPACING, (j - middle) * SCENE_SPACING, (k - middle) * SCENE_SPACING, 1));
+                    sceneGraph.add(mesh, matrix);
+                }
+
+        modelTransform.reset();
+        requestFrame();
+    }
+
+    @FXML
+    private void onSceneAnimateClick() {
+        if (!animateSceneMenuItem.isSelected()) {
+            stopSceneAnimation();
+            return;
+        }
+
+        if (sceneGraph == null)
+            onSceneInstancesClick();
+        if (sceneGraph == null) {
+            animateSceneMenuItem.setSelected(false);
+            return;
+        }
+
+        final var matrix = new Matrix4();
+        final var operator = new Matrix4();
+        sceneAnimation = new AnimationTimer() {
+
+            private long lastTime = -1;
+
+            @Override
+            public void handle(long now) {
+                if (lastTime < 0) {
+                    lastTime = now;
+                    return;
+                }
+
+                final var time = now / 1e9;
+                final var previousTime = lastTime / 1e9;
+                lastTime = now;
+
+                // Each instance spins around its own axis and bobs up and down in the world
+                for (var i = 0; i < sceneGraph.getInstancesCount(); i++) {
+                    final var instance = sceneGraph.getInstance(i);
+                    final var bob = SCENE_BOB_HEIGHT * (Math.sin(time * 2 + i) - Math.sin(previousTime * 2 + i));
+
+                    operator.setOYRotation(SCENE_SPIN_SPEED * (time - previousTime));
+                    Matrix4.multiply(operator, instance.getMatrix(), matrix);
+                    matrix.multiply(operator.setMove(0, bob));
+                    sceneGraph.setMatrix(instance, matrix);
+                }
+
+                requestFrame();
+            }
+
+        };
+        sceneAnimation.start();
+    }
+
+    private void leaveScene() {
+        stopSceneAnimation();
+        clearPick();
+        sceneGraph = null;
+    }
+
+    private void stopSceneAnimation() {
+        if (sceneAnimation != null)
+            sceneAnimation.stop();
+
+        sceneAnimation = null;
+        animateSceneMenuItem.setSelected(false);
+    }
+
+    // The current mesh stays on screen until the new one is generated
+    private void changeMesh() {
+        final var change = ++meshChanges;
+        final var figure = currentFigure;
+        final var resolution = currentResolution;
+
+        CompletableFuture.supplyAsync(() -> meshCache.get(figure, resolution)).thenAcceptAsync(generatedMesh -> {
+            if (meshChanges != change)
+                return;
+
+            mesh = generatedMesh;
+            requestFrame();
+        }, Platform::runLater).exceptionally(e -> {
+            System.out.println("Whoops, something went wrong: " + e);
+            return null;
+        });
     }
 
     @FXML
     private void onMirrorOXClick() {
-        nodes = affineOperationsImpl.mirrorOX(nodes);
-        figureMiddlePoint = affineOperationsImpl.mirrorOX(figureMiddlePoint);
-        redrawCanvas();
+        modelTransform.mirrorOX();
+        requestFrame();
     }
 
     @FXML
     private void onMirrorOYClick() {
-        nodes = affineOperationsImpl.mirrorOY(nodes);
-        figureMiddlePoint = affineOperationsImpl.mirrorOY(figureMiddlePoint);
-        redrawCanvas();
+        modelTransform.mirrorOY();
+        requestFrame();
     }
 
     @FXML
     private void onMirrorOZClick() {
-        nodes = affineOperationsImpl.mirrorOZ(nodes);
-        figureMiddlePoint = affineOperationsImpl.mirrorOZ(figureMiddlePoint);
-        redrawCanvas();
+        modelTransform.mirrorOZ();
+        requestFrame();
     }
 
     @FXML
     private void onParallelProjectionClick() {
         isPerspectiveProjection = false;
-        redrawCanvas();
+        requestFrame();
     }
 
     @FXML
     private void onPerspectiveProjectionClick() {
         isPerspectiveProjection = true;
-        redrawCanvas();
+        requestFrame();
+    }
+
+    @FXML
+    private void onFourViewsClick() {
+        isMultiView = fourViewsMenuItem.isSelected();
+        clearPick();
+        requestFrame();
     }
 
     @FXML
     private void onRobertsAlgorithmEnableClick() {
         isRobertsAlgorithmEnabled = true;
-        redrawCanvas();
+        requestFrame();
     }
 
     @FXML
     private void onRobertsAlgorithmDisableClick() {
         isRobertsAlgorithmEnabled = false;
-        redrawCanvas();
+        requestFrame();
     }
 
     @FXML
-    private void onSaveNodesClick() {
-        try {
-            PrintWriter writer = new PrintWriter("SavedNodes/" + currentFigure.toString().toLowerCase() + ".txt");
-            writer.println(currentFigure);
-
-            writer.println(nodes.getRowDimension());
-            for (int i = 0; i < nodes.getRowDimension(); i++) {
-                final var x = String.valueOf(nodes.getEntry(i, 0));
-                final var y = String.valueOf(nodes.getEntry(i, 1));
-                final var z = String.valueOf(nodes.getEntry(i, 2));
-                writer.println(x + " " + y + " " + z);
+    private void onWireframeRenderingClick() {
+        renderMode = RenderMode.WIREFRAME;
+        requestFrame();
+    }
+
+    @FXML
+    private void onFilledRenderingClick() {
+        renderMode = RenderMode.FILLED;
+        requestFrame();
+    }
+
+    @FXML
+    private void onPainterRenderingClick() {
+        renderMode = RenderMode.PAINTER;
+        requestFrame();
+    }
+
+    @FXML
+    private void onStatisticsClick() {
+        Profiler.setEnabled(statisticsMenuItem.isSelected());
+        frameStatistics.reset();
+        requestFrame();
+    }
+
+    @FXML
+    private void onSaveMeshClick() {
+        final var chooser = createMeshFileChooser("Save mesh", MeshFile.EXTENSION);
+        chooser.setInitialFileName((currentFigure != null ? MeshGenerators.getFileName(currentFigure) : "mesh") + "." + MeshFile.EXTENSION);
+
+        final var file = chooser.showSaveDialog(canvas.getScene().getWindow());
+        if (file == null)
+            return;
+
+        // The current view is saved, as it is drawn
+        final var source = mesh;
+        final var matrix = new Matrix4(modelTransform.getMatrix());
+
+        CompletableFuture.runAsync(() -> {
+            final var nodes = new double[source.getNodesCount() * Mesh.NODE_SIZE];
+            matrix.transform(source, nodes);
+
+            try {
+                final var saved = source.withNodes(nodes);
+                MeshFile.save(matrix.isMirroring() ? saved.withReversedWinding() : saved, file.toPath());
             }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).exceptionally(e -> {
+            System.out.println("Whoops, something went wrong: " + e);
+            return null;
+        });
+    }
+
+    @FXML
+    private void onLoadMeshClick() {
+        final var file = createMeshFileChooser("Load mesh", MeshImporter.EXTENSIONS).showOpenDialog(canvas.getScene().getWindow());
+        if (file == null)
+            return;
 
-            writer.println(polygons.size());
-            for (var polygon : polygons) {
-                writer.println(polygon.p1 + " " + polygon.p2 + " " + polygon.p3);
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                // Imported models come in any units, they are brought to the size of the figures
+                return MeshImporter.load(file.toPath()).fitToRadius(LOADED_MESH_RADIUS);
             }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).thenAcceptAsync(loadedMesh -> {
+            leaveScene();
+            currentFigure = null;
+            sphereSubdivision = null;
+            meshChanges++;
+            mesh = loadedMesh;
+            modelTransform.reset();
+            requestFrame();
+            buildLodChain(loadedMesh, () -> LodChain.of(loadedMesh));
+        }, Platform::runLater).exceptionally(e -> {
+            System.out.println("Whoops, something went wrong: " + e);
+            return null;
+        });
+    }
 
-            writer.close();
-        }
-        catch (IOException e) {
-            System.out.println("Whoops, something went wrong");
-        }
+    private FileChooser createMeshFileChooser(String title, String... extensions) {
+        final var patterns = new ArrayList<String>();
+        for (final var extension : extensions)
+            patterns.add("*." + extension);
+
+        final var chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Meshes", patterns));
+
+        final var directory = new File(SAVED_MESHES_DIRECTORY);
+        if (directory.isDirectory())
+            chooser.setInitialDirectory(directory);
+
+        return chooser;
     }
 
     @FXML
@@ -0,0 +1,88 @@
+package app;
+
+// Planes of the mesh polygons in model space: a unit normal and an offset, so that
+// nx * x + ny * y + nz * z + offset is the signed distance of a point to the plane.
+// Normals face outwards: along the winding of the polygon, see Mesh.Orientation, or away from
+// the model space origin for the hand-wound figures. Degenerate polygons get a zero normal.
+public final class FacePlanes {
+
+    private static final int PLANE_SIZE = 4;
+
+    public static final int BYTES_PER_POLYGON = PLANE_SIZE * Double.BYTES;
+
+    private final double[] planes;
+
+    private FacePlanes(double[] planes) {
+        this.planes = planes;
+    }
+
+    static FacePlanes of(Mesh mesh) {
+        final var isOrientedByOrigin = mesh.getOrientation() == Mesh.Orientation.ORIGIN;
+        final var polygonsCount = mesh.getPolygonsCount();
+        final var planes = new double[polygonsCount * PLANE_SIZE];
+
+        for (var polygon = 0; polygon < polygonsCount; polygon++) {
+            final var p1 = mesh.getP1(polygon);
+            final var p2 = mesh.getP2(polygon);
+            final var p3 = mesh.getP3(polygon);
+
+            final var x1 = mesh.getX(p1);
+            final var y1 = mesh.getY(p1);
+            final var z1 = mesh.getZ(p1);
+            final var ax = mesh.getX(p2) - x1;
+            final var ay = mesh.getY(p2) - y1;
+            final var az = mesh.getZ(p2) - z1;
+            final var bx = mesh.getX(p3) - x1;
+            final var by = mesh.getY(p3) - y1;
+            final var bz = mesh.getZ(p3) - z1;
+
+            var nx = ay * bz - az * by;
+            var ny = az * bx - ax * bz;
+            var nz = ax * by - ay * bx;
+            final var length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0 || !Double.isFinite(length))
+                continue;
+
+            nx /= length;
+            ny /= length;
+            nz /= length;
+            var offset = -(nx * x1 + ny * y1 + nz * z1);
+
+            // The origin has to be on the inner side
+            if (isOrientedByOrigin && offset > 0) {
+                nx = -nx;
+                ny = -ny;
+                nz = -nz;
+                offset = -offset;
+            }
+
+            planes[polygon * PLANE_SIZE] = nx;
+            planes[polygon * PLANE_SIZE + 1] = ny;
+            planes[polygon * PLANE_SIZE + 2] = nz;
+            planes[polygon * PLANE_SIZE + 3] = offset;
+        }
+
+        return new FacePlanes(planes);
+    }
+
+    public double getNormalX(int polygon) {
+        return planes[polygon * PLANE_SIZE];
+    }
+
+    public double getNormalY(int polygon) {
+        return planes[polygon * PLANE_SIZE + 1];
+    }
+
+    public double getNormalZ(int polygon) {
+        return planes[polygon * PLANE_SIZE + 2];
+    }
+
+    public double getOffset(int polygon) {
+        return planes[polygon * PLANE_SIZE + 3];
+    }
+
+    public long getSizeInBytes() {
+        return (long) planes.length * Double.BYTES;
+    }
+
+}
@@ -0,0 +1,45 @@
+package app.Generators;
+
+// Square terrain in the XZ plane with waves along OY. The height is a sum of products of
+// a function of u and a function of v, so both are tabulated once per mesh. Rows run
+// towards -z, so the polygons face -y, the top of the screen.
+public class HeightFieldGenerator extends ParametricGenerator {
+
+    private static final double HALF_SIZE = 150;
+    private static final double HIGH_WAVE = 30;
+    private static final double LOW_WAVE = 12;
+
+    public HeightFieldGenerator() {
+        super("Height field", Topology.PLANE, 64, 4, 1024);
+    }
+
+    @Override
+    protected Surface prepare(int columns, int rows) {
+        final var x = new double[columns + 1];
+        final var highU = new double[columns + 1];
+        final var lowU = new double[columns + 1];
+        for (var column = 0; column <= columns; column++) {
+            final var u = (double) column / columns;
+            x[column] = (2 * u - 1) * HALF_SIZE;
+            highU[column] = Math.sin(3 * Math.PI * u);
+            lowU[column] = Math.cos(11 * Math.PI * u);
+        }
+
+        final var z = new double[rows + 1];
+        final var highV = new double[rows + 1];
+        final var lowV = new double[rows + 1];
+        for (var row = 0; row <= rows; row++) {
+            final var v = (double) row / rows;
+            z[row] = (1 - 2 * v) * HALF_SIZE;
+            highV[row] = Math.cos(2 * Math.PI * v);
+            lowV[row] = Math.sin(7 * Math.PI * v);
+        }
+
+        return (column, row, nodes, offset) -> {
+            nodes[offset] = x[column];
+            nodes[offset + 1] = HIGH_WAVE * highU[column] * highV[row] + LOW_WAVE * lowU[column] * lowV[row];
+            nodes[offset + 2] = z[row];
+        };
+    }
+
+}
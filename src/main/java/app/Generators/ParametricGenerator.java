@@ -0,0 +1,220 @@
+package app.Generators;
+
+import app.Mesh;
+import app.MeshGenerator;
+
+import java.util.stream.IntStream;
+
+// Surfaces given by a function of two parameters, sampled on a grid of columns along u and rows
+// along v. The resolution is the number of columns. The grid is generated in bands of rows in
+// parallel: the first node and polygon of every band follow from its first row, so each band
+// writes straight into the preallocated arrays. Inside a band the quads are emitted in narrow
+// tiles of columns, which keeps the nodes of consecutive polygons within the vertex cache.
+public abstract class ParametricGenerator implements MeshGenerator {
+
+    public enum Topology {
+        // Open along both parameters
+        PLANE,
+        // Closed along u, the first and the last rows collapse into poles
+        SPHERE,
+        // Closed along both parameters
+        TORUS
+    }
+
+    // Position of the grid node at a column and a row, written as x, y, z at the offset
+    @FunctionalInterface
+    protected interface Surface {
+        void evaluate(int column, int row, double[] nodes, int offset);
+    }
+
+    private static final int BAND_ROWS = 16;
+    // A row of a tile touches 2 * (TILE_COLUMNS + 1) nodes, half of them shared with the
+    // previous row, so a 16 entry vertex cache still holds them
+    private static final int TILE_COLUMNS = 6;
+
+    private final String name;
+    private final Topology topology;
+    private final int defaultResolution;
+    private final int minResolution;
+    private final int maxResolution;
+
+    protected ParametricGenerator(String name, Topology topology, int defaultResolution, int minResolution, int maxResolution) {
+        if (minResolution < 2 || defaultResolution < minResolution || maxResolution < defaultResolution)
+            throw new IllegalArgumentException("Resolutions must satisfy 2 <= min <= default <= max: "
+                    + minResolution + ", " + defaultResolution + ", " + maxResolution);
+
+        this.name = name;
+        this.topology = topology;
+        this.defaultResolution = defaultResolution;
+        this.minResolution = minResolution;
+        this.maxResolution = maxResolution;
+    }
+
+    // Called once per mesh with the grid size, tables of the parameters are built here
+    protected abstract Surface prepare(int columns, int rows);
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    @Override
+    public Mesh getMesh(int resolution) {
+        if (resolution < minResolution || resolution > maxResolution)
+            throw new IllegalArgumentException("Resolution of " + name + " must be in ["
+                    + minResolution + ", " + maxResolution + "]: " + resolution);
+
+        final var columns = resolution;
+        final var rows = getRows(resolution);
+        final var surface = prepare(columns, rows);
+
+        final var nodes = new double[getNodesCount(columns, rows) * Mesh.NODE_SIZE];
+        final var indices = new int[getPolygonsCount(columns, rows) * Mesh.POLYGON_SIZE];
+        final var nodeRows = topology == Topology.TORUS ? rows : rows + 1;
+        final var bands = (rows + BAND_ROWS - 1) / BAND_ROWS;
+
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            final var from = band * BAND_ROWS;
+            final var to = Math.min(rows, from + BAND_ROWS);
+
+            fillNodes(surface, nodes, columns, rows, from, band == bands - 1 ? nodeRows : to);
+            fillPolygons(indices, columns, rows, from, to);
+        });
+
+        // The bands are done with the arrays, the mesh adopts them without a copy
+        return Mesh.wrap(nodes, indices);
+    }
+
+    // Rows of the grid, spheres span half a turn along v
+    public int getRows(int resolution) {
+        return topology == Topology.SPHERE ? Math.max(2, resolution / 2) : resolution;
+    }
+
+    @Override
+    public int getDefaultResolution() {
+        return defaultResolution;
+    }
+
+    @Override
+    public int getMinResolution() {
+        return minResolution;
+    }
+
+    @Override
+    public int getMaxResolution() {
+        return maxResolution;
+    }
+
+    @Override
+    public int getFinerResolution(int resolution) {
+        return resolution * 2;
+    }
+
+    @Override
+    public int getCoarserResolution(int resolution) {
+        return resolution / 2;
+    }
+
+    @Override
+    public boolean isLocallyOrdered() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    // Helpers
+
+    private void fillNodes(Surface surface, double[] nodes, int columns, int rows, int fromRow, int toRow) {
+        final var nodeColumns = topology == Topology.PLANE ? columns + 1 : columns;
+
+        for (var row = fromRow; row < toRow; row++) {
+            if (isPole(row, rows)) {
+                surface.evaluate(0, row, nodes, node(0, row, columns, rows) * Mesh.NODE_SIZE);
+                continue;
+            }
+
+            for (var column = 0; column < nodeColumns; column++)
+                surface.evaluate(column, row, nodes, node(column, row, columns, rows) * Mesh.NODE_SIZE);
+        }
+    }
+
+    // Every quad is split into two polygons, next to a pole one of them is degenerate and left out.
+    // Polygons are wound a, d, b and a, c, d, so their outer side is the one of v x u.
+    private void fillPolygons(int[] indices, int columns, int rows, int fromRow, int toRow) {
+        var offset = getFirstPolygon(fromRow, columns) * Mesh.POLYGON_SIZE;
+
+        for (var tile = 0; tile < columns; tile += TILE_COLUMNS)
+            for (var row = fromRow; row < toRow; row++)
+                for (var column = tile; column < Math.min(columns, tile + TILE_COLUMNS); column++) {
+                    final var a = node(column, row, columns, rows);
+                    final var b = node(column + 1, row, columns, rows);
+                    final var c = node(column, row + 1, columns, rows);
+                    final var d = node(column + 1, row + 1, columns, rows);
+
+                    if (!isPole(row, rows)) {
+                        indices[offset++] = a;
+                        indices[offset++] = d;
+                        indices[offset++] = b;
+                    }
+
+                    if (!isPole(row + 1, rows)) {
+                        indices[offset++] = a;
+                        indices[offset++] = c;
+                        indices[offset++] = d;
+                    }
+                }
+    }
+
+    private boolean isPole(int row, int rows) {
+        return topology == Topology.SPHERE && (row == 0 || row == rows);
+    }
+
+    private int node(int column, int row, int columns, int rows) {
+        switch (topology) {
+            case PLANE:
+                return row * (columns + 1) + column;
+
+            case SPHERE:
+                if (row == 0)
+                    return 0;
+                if (row == rows)
+                    return 1 + (rows - 1) * columns;
+                return 1 + (row - 1) * columns + column % columns;
+
+            default:
+                return row % rows * columns + column % columns;
+        }
+    }
+
+    private int getNodesCount(int columns, int rows) {
+        switch (topology) {
+            case PLANE:
+                return (columns + 1) * (rows + 1);
+
+            case SPHERE:
+                return 2 + (rows - 1) * columns;
+
+            default:
+                return columns * rows;
+        }
+    }
+
+    private int getPolygonsCount(int columns, int rows) {
+        return topology == Topology.SPHERE ? 2 * columns * (rows - 1) : 2 * columns * rows;
+    }
+
+    private int getFirstPolygon(int row, int columns) {
+        if (topology != Topology.SPHERE)
+            return 2 * columns * row;
+
+        return row == 0 ? 0 : columns + 2 * columns * (row - 1);
+    }
+
+}
@@ -0,0 +1,47 @@
+package app.Generators;
+
+// Superellipsoid: a sphere whose sines and cosines are raised to the exponents, keeping their
+// signs. Exponents below 1 square the shape off towards a cube, above 1 pinch it towards an
+// octahedron. The latitude is v, the longitude is u.
+public class SuperquadricGenerator extends ParametricGenerator {
+
+    private static final double RADIUS = 130;
+    private static final double LATITUDE_EXPONENT = 0.4;
+    private static final double LONGITUDE_EXPONENT = 0.4;
+
+    public SuperquadricGenerator() {
+        super("Superquadric", Topology.SPHERE, 64, 4, 1024);
+    }
+
+    @Override
+    protected Surface prepare(int columns, int rows) {
+        final var cosU = new double[columns];
+        final var sinU = new double[columns];
+        for (var column = 0; column < columns; column++) {
+            final var u = 2 * Math.PI * column / columns;
+            cosU[column] = signedPower(Math.cos(u), LONGITUDE_EXPONENT);
+            sinU[column] = signedPower(Math.sin(u), LONGITUDE_EXPONENT);
+        }
+
+        final var cosV = new double[rows + 1];
+        final var sinV = new double[rows + 1];
+        for (var row = 0; row <= rows; row++) {
+            final var v = Math.PI * row / rows - Math.PI / 2;
+            cosV[row] = signedPower(Math.cos(v), LATITUDE_EXPONENT);
+            sinV[row] = signedPower(Math.sin(v), LATITUDE_EXPONENT);
+        }
+
+        return (column, row, nodes, offset) -> {
+            nodes[offset] = RADIUS * cosV[row] * cosU[column];
+            nodes[offset + 1] = RADIUS * sinV[row];
+            nodes[offset + 2] = RADIUS * cosV[row] * sinU[column];
+        };
+    }
+
+    // Helpers
+
+    private static double signedPower(double value, double exponent) {
+        return Math.copySign(Math.pow(Math.abs(value), exponent), value);
+    }
+
+}
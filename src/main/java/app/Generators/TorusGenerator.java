@@ -0,0 +1,37 @@
+package app.Generators;
+
+// Ring around OY, the tube turns once along v while the ring turns once along u
+public class TorusGenerator extends ParametricGenerator {
+
+    private static final double RING_RADIUS = 100;
+    private static final double TUBE_RADIUS = 50;
+
+    public TorusGenerator() {
+        super("Torus", Topology.TORUS, 64, 4, 1024);
+    }
+
+    @Override
+    protected Surface prepare(int columns, int rows) {
+        final var cosU = new double[columns];
+        final var sinU = new double[columns];
+        for (var column = 0; column < columns; column++) {
+            cosU[column] = Math.cos(2 * Math.PI * column / columns);
+            sinU[column] = Math.sin(2 * Math.PI * column / columns);
+        }
+
+        final var cosV = new double[rows];
+        final var sinV = new double[rows];
+        for (var row = 0; row < rows; row++) {
+            cosV[row] = Math.cos(2 * Math.PI * row / rows);
+            sinV[row] = Math.sin(2 * Math.PI * row / rows);
+        }
+
+        return (column, row, nodes, offset) -> {
+            final var distance = RING_RADIUS + TUBE_RADIUS * cosV[row];
+            nodes[offset] = distance * cosU[column];
+            nodes[offset + 1] = TUBE_RADIUS * sinV[row];
+            nodes[offset + 2] = distance * sinU[column];
+        };
+    }
+
+}
@@ -0,0 +1,172 @@
+package app;
+
+import app.AffineOperations.Matrix4;
+import app.Rendering.DetailSelector;
+
+import java.util.ArrayList;
+
+// Levels of detail of one shape, ordered from the coarsest to the finest. Every frame the
+// level is picked by the projected size of the bounding sphere, so that a polygon covers about
+// PIXELS_PER_POLYGON pixels. Switching levels needs a margin of HYSTERESIS, so a size
+// hovering around a threshold does not make the level flip back and forth.
+public final class LodChain implements DetailSelector {
+
+    public static final double PIXELS_PER_POLYGON = 64;
+
+    private static final double HYSTERESIS = 0.5;
+
+    // Bands of the precomputed levels. The sphere without poles is not chained,
+    // SphereSubdivision refines it face by face instead.
+    private static final int[] SPHERE_WITH_POLES_BANDS = { 4, 8, 16, 32, 64, 128, 256 };
+
+    // Imported meshes are simplified by clustering their nodes into cells of
+    // radius / 2^k, the coarsest level has MIN_CLUSTERING_DEPTH
+    private static final int MIN_CLUSTERING_DEPTH = 3;
+    private static final int MAX_CLUSTERING_DEPTH = 12;
+
+    private final Mesh[] levels;
+    private final int[] resolutions;
+    private final double radius;
+    private int currentLevel = -1;
+
+    private LodChain(Mesh[] levels, int[] resolutions) {
+        this.levels = levels;
+        this.resolutions = resolutions;
+        this.radius = boundingRadius(levels[levels.length - 1]);
+    }
+
+    public static boolean isSupported(MeshGenerator generator) {
+        return generator == Figure.SPHERE_WITH_POLES;
+    }
+
+    public static LodChain of(MeshGenerator generator, MeshCache cache) {
+        if (!isSupported(generator))
+            throw new IllegalArgumentException("Figure has a single level of detail: " + generator);
+
+        final var resolutions = SPHERE_WITH_POLES_BANDS;
+        final var levels = new Mesh[resolutions.length];
+        for (var i = 0; i < levels.length; i++)
+            levels[i] = cache.get(generator, resolutions[i]);
+
+        return new LodChain(levels, resolutions);
+    }
+
+    // The mesh is the finest level, the coarser ones are built by vertex clustering
+    public static LodChain of(Mesh mesh) {
+        final var levels = new ArrayList<Mesh>();
+        final var radius = boundingRadius(mesh);
+
+        for (var depth = MIN_CLUSTERING_DEPTH; depth <= MAX_CLUSTERING_DEPTH && radius > 0; depth++) {
+            final var level = cluster(mesh, radius / (1 << depth));
+            if (level.getPolygonsCount() * 2 > mesh.getPolygonsCount())
+                break;
+
+            if (level.getPolygonsCount() > 0
+                    && (levels.isEmpty() || level.getPolygonsCount() > levels.get(levels.size() - 1).getPolygonsCount()))
+                levels.add(level);
+        }
+
+        levels.add(mesh);
+        return new LodChain(levels.toArray(new Mesh[0]), null);
+    }
+
+    public int getLevelsCount() {
+        return levels.length;
+    }
+
+    public Mesh getLevel(int level) {
+        return levels[level];
+    }
+
+    // Figure resolution of the level, -1 for imported meshes
+    public int getResolution(int level) {
+        return resolutions != null ? resolutions[level] : -1;
+    }
+
+    public int getCurrentLevel() {
+        return currentLevel;
+    }
+
+    @Override
+    public int getResolution() {
+        return currentLevel != -1 ? getResolution(currentLevel) : -1;
+    }
+
+    // The level does not depend on the viewport size
+    @Override
+    public Mesh select(Matrix4 modelMatrix, boolean isPerspectiveProjection, double width, double height) {
+        return select(modelMatrix, isPerspectiveProjection);
+    }
+
+    // Must be called from a single thread, it updates the current level
+    public Mesh select(Matrix4 modelMatrix, boolean isPerspectiveProjection) {
+        final var projectedRadius = projectedRadius(modelMatrix, isPerspectiveProjection);
+
+        // About half of the surface faces the viewer and covers the projected disk
+        final var wantedPolygons = 2 * Math.PI * projectedRadius * projectedRadius / PIXELS_PER_POLYGON;
+        final var ideal = firstLevelWith(wantedPolygons);
+
+        if (currentLevel == -1)
+            currentLevel = ideal;
+        else if (ideal > currentLevel && levels[currentLevel].getPolygonsCount() * (1 + HYSTERESIS) < wantedPolygons)
+            currentLevel = ideal;
+        else if (ideal < currentLevel && levels[currentLevel - 1].getPolygonsCount() >= wantedPolygons * (1 + HYSTERESIS))
+            currentLevel = firstLevelWith(wantedPolygons * (1 + HYSTERESIS));
+
+        return levels[currentLevel];
+    }
+
+    // Helpers
+
+    private int firstLevelWith(double polygons) {
+        for (var level = 0; level < levels.length; level++)
+            if (levels[level].getPolygonsCount() >= polygons)
+                return level;
+
+        return levels.length - 1;
+    }
+
+    private double projectedRadius(Matrix4 modelMatrix, boolean isPerspectiveProjection) {
+        final var scaledRadius = radius * modelMatrix.getUniformScale();
+        if (!isPerspectiveProjection)
+            return scaledRadius;
+
+        // Perspective magnifies by the distance of the figure center to the eye
+        final var centerZ = modelMatrix.get(3, 2) / modelMatrix.get(3, 3);
+        final var w = 1 - centerZ / Matrix4.PERSPECTIVE_DISTANCE;
+        return w > 0 ? scaledRadius / w : Double.POSITIVE_INFINITY;
+    }
+
+    private static double boundingRadius(Mesh mesh) {
+        var result = 0d;
+        for (var node = 0; node < mesh.getNodesCount(); node++) {
+            final var x = mesh.getX(node);
+            final var y = mesh.getY(node);
+            final var z = mesh.getZ(node);
+            result = Math.max(result, x * x + y * y + z * z);
+        }
+
+        return Math.sqrt(result);
+    }
+
+    // Nodes closer than the cell size collapse into one, polygons losing a side are dropped
+    private static Mesh cluster(Mesh mesh, double cellSize) {
+        final var builder = new MeshBuilder();
+        final var welder = new VertexWelder(builder, cellSize / 2);
+
+        final var clusters = new int[mesh.getNodesCount()];
+        for (var node = 0; node < mesh.getNodesCount(); node++)
+            clusters[node] = welder.addNode(mesh.getX(node), mesh.getY(node), mesh.getZ(node));
+
+        for (var polygon = 0; polygon < mesh.getPolygonsCount(); polygon++) {
+            final var p1 = clusters[mesh.getP1(polygon)];
+            final var p2 = clusters[mesh.getP2(polygon)];
+            final var p3 = clusters[mesh.getP3(polygon)];
+            if (p1 != p2 && p2 != p3 && p1 != p3)
+                builder.addPolygon(p1, p2, p3);
+        }
+
+        return builder.build().withPrecision(mesh.getPrecision()).withOrientation(mesh.getOrientation());
+    }
+
+}
@@ -0,0 +1,273 @@
+package app;
+
+import app.AffineOperations.Matrix4;
+
+// Meshes are immutable, so a mesh can be shared between threads and caches.
+// The arrays passed to of(...) and withNodes(...) are copied. Builders that fill large
+// arrays themselves hand them over through wrap(...) instead and never touch them again.
+public final class Mesh {
+
+    public static final int NODE_SIZE = 3;
+    public static final int POLYGON_SIZE = 3;
+
+    public enum Precision { DOUBLE, FLOAT }
+
+    // How the face planes tell the outer side of a polygon. WINDING meshes are wound consistently,
+    // (p2 - p1) x (p3 - p1) points outwards, as in generated and imported meshes. ORIGIN is for the
+    // hand-wound figures, wound either way: their outer side is the one away from the model space origin.
+    public enum Orientation { WINDING, ORIGIN }
+
+    // Nodes are packed as x, y, z triples. The homogeneous coordinate is always 1,
+    // so it is not stored. Exactly one of the two arrays is used.
+    private final double[] doubleNodes;
+    private final float[] floatNodes;
+    private final int[] indices;
+    private final int nodesCount;
+    private final Orientation orientation;
+
+    // Derived data, computed on first use
+    private volatile MeshEdges edges;
+    private volatile MeshBvh bvh;
+    private volatile FacePlanes facePlanes;
+
+    private Mesh(double[] doubleNodes, float[] floatNodes, int[] indices, Orientation orientation) {
+        final var length = doubleNodes != null ? doubleNodes.length : floatNodes.length;
+        if (length % NODE_SIZE != 0)
+            throw new IllegalArgumentException("Nodes length must be a multiple of " + NODE_SIZE + ": " + length);
+        if (indices.length % POLYGON_SIZE != 0)
+            throw new IllegalArgumentException("Indices length must be a multiple of " + POLYGON_SIZE + ": " + indices.length);
+
+        this.doubleNodes = doubleNodes;
+        this.floatNodes = floatNodes;
+        this.indices = indices;
+        this.nodesCount = length / NODE_SIZE;
+        this.orientation = orientation;
+    }
+
+    public static Mesh of(double[] nodes, int[] indices) {
+        return new Mesh(nodes.clone(), null, indices.clone(), Orientation.WINDING);
+    }
+
+    public static Mesh of(float[] nodes, int[] indices) {
+        return new Mesh(null, nodes.clone(), indices.clone(), Orientation.WINDING);
+    }
+
+    public static Mesh ofNode(double x, double y, double z) {
+        return new Mesh(new double[] { x, y, z }, null, new int[0], Orientation.WINDING);
+    }
+
+    // The mesh takes the arrays over without a copy, the caller must not modify them afterwards
+
+    public static Mesh wrap(double[] nodes, int[] indices) {
+        return new Mesh(nodes, null, indices, Orientation.WINDING);
+    }
+
+    public static Mesh wrap(float[] nodes, int[] indices) {
+        return new Mesh(null, nodes, indices, Orientation.WINDING);
+    }
+
+    // Nodes
+
+    public Precision getPrecision() {
+        return doubleNodes != null ? Precision.DOUBLE : Precision.FLOAT;
+    }
+
+    public Orientation getOrientation() {
+        return orientation;
+    }
+
+    public int getNodesCount() {
+        return nodesCount;
+    }
+
+    public double getX(int node) {
+        return doubleNodes != null ? doubleNodes[node * NODE_SIZE] : floatNodes[node * NODE_SIZE];
+    }
+
+    public double getY(int node) {
+        return doubleNodes != null ? doubleNodes[node * NODE_SIZE + 1] : floatNodes[node * NODE_SIZE + 1];
+    }
+
+    public double getZ(int node) {
+        return doubleNodes != null ? doubleNodes[node * NODE_SIZE + 2] : floatNodes[node * NODE_SIZE + 2];
+    }
+
+    public void copyNodes(double[] destination) {
+        if (doubleNodes != null) {
+            System.arraycopy(doubleNodes, 0, destination, 0, doubleNodes.length);
+            return;
+        }
+
+        for (var i = 0; i < floatNodes.length; i++)
+            destination[i] = floatNodes[i];
+    }
+
+    // Runs the fused transform kernel of the operator over the node array, see Matrix4
+    public void transform(Matrix4 operator, double[] destination, int offset, double xOffset, double yOffset) {
+        if (doubleNodes != null)
+            operator.transform(doubleNodes, 0, nodesCount, destination, offset, xOffset, yOffset);
+        else
+            operator.transform(floatNodes, 0, nodesCount, destination, offset, xOffset, yOffset);
+    }
+
+    // Polygons
+
+    public int getPolygonsCount() {
+        return indices.length / POLYGON_SIZE;
+    }
+
+    public int getIndex(int i) {
+        return indices[i];
+    }
+
+    public int getP1(int polygon) {
+        return indices[polygon * POLYGON_SIZE];
+    }
+
+    public int getP2(int polygon) {
+        return indices[polygon * POLYGON_SIZE + 1];
+    }
+
+    public int getP3(int polygon) {
+        return indices[polygon * POLYGON_SIZE + 2];
+    }
+
+    public MeshEdges getEdges() {
+        var result = edges;
+        if (result == null)
+            edges = result = MeshEdges.of(this);
+
+        return result;
+    }
+
+    public FacePlanes getFacePlanes() {
+        var result = facePlanes;
+        if (result == null)
+            facePlanes = result = FacePlanes.of(this);
+
+        return result;
+    }
+
+    public MeshBvh getBvh() {
+        var result = bvh;
+        if (result == null)
+            bvh = result = MeshBvh.of(this);
+
+        return result;
+    }
+
+    // Raw arrays for bulk I/O, exactly one of the node arrays is not null.
+    // They are shared with the mesh and must not be modified.
+
+    double[] getDoubleNodes() {
+        return doubleNodes;
+    }
+
+    float[] getFloatNodes() {
+        return floatNodes;
+    }
+
+    int[] getIndices() {
+        return indices;
+    }
+
+    // Conversions
+
+    public Mesh withNodes(double[] nodes) {
+        if (nodes.length != nodesCount * NODE_SIZE)
+            throw new IllegalArgumentException("Expected " + nodesCount * NODE_SIZE + " coordinates, got " + nodes.length);
+
+        return doubleNodes != null ? new Mesh(nodes.clone(), null, indices, orientation) : new Mesh(null, toFloats(nodes), indices, orientation);
+    }
+
+    public Mesh withPrecision(Precision precision) {
+        if (precision == getPrecision())
+            return this;
+
+        if (precision == Precision.FLOAT)
+            return new Mesh(null, toFloats(doubleNodes), indices, orientation);
+
+        final var nodes = new double[floatNodes.length];
+        copyNodes(nodes);
+        return new Mesh(nodes, null, indices, orientation);
+    }
+
+    public Mesh withOrientation(Orientation orientation) {
+        return orientation == this.orientation ? this : new Mesh(doubleNodes, floatNodes, indices, orientation);
+    }
+
+    // Same nodes with every polygon wound the other way round, for nodes that went through a mirror
+    public Mesh withReversedWinding() {
+        final var reversed = indices.clone();
+        for (var i = 0; i < reversed.length; i += POLYGON_SIZE) {
+            reversed[i + 1] = indices[i + 2];
+            reversed[i + 2] = indices[i + 1];
+        }
+
+        return new Mesh(doubleNodes, floatNodes, reversed, orientation);
+    }
+
+    // Moves the bounding box center to the origin and scales the mesh, so that
+    // the farthest node is at the given distance from it
+    public Mesh fitToRadius(double radius) {
+        if (nodesCount == 0)
+            return this;
+
+        final var min = new double[] { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+        final var max = new double[] { -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+        for (var i = 0; i < nodesCount * NODE_SIZE; i++) {
+            final var value = doubleNodes != null ? doubleNodes[i] : floatNodes[i];
+            min[i % NODE_SIZE] = Math.min(min[i % NODE_SIZE], value);
+            max[i % NODE_SIZE] = Math.max(max[i % NODE_SIZE], value);
+        }
+
+        final var center = new double[NODE_SIZE];
+        for (var axis = 0; axis < NODE_SIZE; axis++)
+            center[axis] = (min[axis] + max[axis]) / 2;
+
+        var farthest = 0d;
+        for (var node = 0; node < nodesCount; node++) {
+            final var dx = getX(node) - center[0];
+            final var dy = getY(node) - center[1];
+            final var dz = getZ(node) - center[2];
+            farthest = Math.max(farthest, dx * dx + dy * dy + dz * dz);
+        }
+
+        final var scale = farthest == 0 ? 1 : radius / Math.sqrt(farthest);
+
+        if (doubleNodes != null) {
+            final var nodes = new double[doubleNodes.length];
+            for (var i = 0; i < nodes.length; i++)
+                nodes[i] = (doubleNodes[i] - center[i % NODE_SIZE]) * scale;
+
+            return new Mesh(nodes, null, indices, orientation);
+        }
+
+        final var nodes = new float[floatNodes.length];
+        for (var i = 0; i < nodes.length; i++)
+            nodes[i] = (float) ((floatNodes[i] - center[i % NODE_SIZE]) * scale);
+
+        return new Mesh(null, nodes, indices, orientation);
+    }
+
+    public long getSizeInBytes() {
+        final long nodesBytes = doubleNodes != null ? (long) doubleNodes.length * Double.BYTES : (long) floatNodes.length * Float.BYTES;
+        return nodesBytes + (long) indices.length * Integer.BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return "Mesh[nodes=" + nodesCount + ", polygons=" + getPolygonsCount() + ", precision=" + getPrecision() + ", orientation=" + orientation + "]";
+    }
+
+    // Helpers
+
+    private static float[] toFloats(double[] nodes) {
+        final var result = new float[nodes.length];
+        for (var i = 0; i < nodes.length; i++)
+            result[i] = (float) nodes[i];
+
+        return result;
+    }
+
+}
@@ -0,0 +1,61 @@
+package app;
+
+import java.util.Arrays;
+
+public final class MeshBuilder {
+
+    private double[] nodes;
+    private int[] indices;
+    private int nodesCount;
+    private int indicesCount;
+
+    public MeshBuilder() {
+        this(16, 16);
+    }
+
+    public MeshBuilder(int expectedNodes, int expectedPolygons) {
+        nodes = new double[Math.max(1, expectedNodes) * Mesh.NODE_SIZE];
+        indices = new int[Math.max(1, expectedPolygons) * Mesh.POLYGON_SIZE];
+    }
+
+    public int addNode(double x, double y, double z) {
+        if (nodesCount * Mesh.NODE_SIZE == nodes.length)
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+
+        final var offset = nodesCount * Mesh.NODE_SIZE;
+        nodes[offset] = x;
+        nodes[offset + 1] = y;
+        nodes[offset + 2] = z;
+        return nodesCount++;
+    }
+
+    public void addPolygon(int p1, int p2, int p3) {
+        if (indicesCount == indices.length)
+            indices = Arrays.copyOf(indices, indices.length * 2);
+
+        indices[indicesCount++] = p1;
+        indices[indicesCount++] = p2;
+        indices[indicesCount++] = p3;
+    }
+
+    public int getNodesCount() {
+        return nodesCount;
+    }
+
+    public double getX(int node) {
+        return nodes[node * Mesh.NODE_SIZE];
+    }
+
+    public double getY(int node) {
+        return nodes[node * Mesh.NODE_SIZE + 1];
+    }
+
+    public double getZ(int node) {
+        return nodes[node * Mesh.NODE_SIZE + 2];
+    }
+
+    public Mesh build() {
+        return Mesh.wrap(Arrays.copyOf(nodes, nodesCount * Mesh.NODE_SIZE), Arrays.copyOf(indices, indicesCount));
+    }
+
+}
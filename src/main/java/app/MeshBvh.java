@@ -0,0 +1,404 @@
+package app;
+
+import java.util.Arrays;
+
+// Bounding volume hierarchy over the polygons of a mesh for ray queries.
+// Nodes are split with the surface area heuristic over a few bins of polygon centroids,
+// leaves keep up to MAX_LEAF_SIZE polygons. Boxes are stored as floats rounded outwards,
+// so they stay conservative for meshes of either precision.
+public final class MeshBvh {
+
+    private static final int MAX_LEAF_SIZE = 4;
+    private static final int BINS_COUNT = 16;
+    private static final int BOX_SIZE = 6;
+
+    // Fewer than two nodes per polygon, each with a box and two ints, and the polygons list
+    public static final int MAX_BYTES_PER_POLYGON = 2 * (BOX_SIZE * Float.BYTES + 2 * Integer.BYTES) + Integer.BYTES;
+
+    // The direction of an axis-parallel ray gets this tiny component instead of zero,
+    // so the slab test never multiplies zero by infinity
+    private static final double MIN_DIRECTION = 1e-30;
+
+    private final Mesh mesh;
+    private final float[] boxes;
+    // Inner nodes: index of the left child (the right one follows it) and -1 - split axis.
+    // Leaves: index of the first polygon in polygons and the polygons count.
+    private final int[] nodes;
+    private final int[] polygons;
+    private final int depth;
+
+    private MeshBvh(Mesh mesh, float[] boxes, int[] nodes, int[] polygons, int depth) {
+        this.mesh = mesh;
+        this.boxes = boxes;
+        this.nodes = nodes;
+        this.polygons = polygons;
+        this.depth = depth;
+    }
+
+    static MeshBvh of(Mesh mesh) {
+        final var polygonsCount = mesh.getPolygonsCount();
+        final var polygons = new int[polygonsCount];
+        final var centroids = new float[polygonsCount * 3];
+        final var bounds = new float[polygonsCount * BOX_SIZE];
+
+        for (var polygon = 0; polygon < polygonsCount; polygon++) {
+            polygons[polygon] = polygon;
+            for (var axis = 0; axis < 3; axis++) {
+                final var a = coordinate(mesh, mesh.getP1(polygon), axis);
+                final var b = coordinate(mesh, mesh.getP2(polygon), axis);
+                final var c = coordinate(mesh, mesh.getP3(polygon), axis);
+                final var min = Math.min(a, Math.min(b, c));
+                final var max = Math.max(a, Math.max(b, c));
+
+                bounds[polygon * BOX_SIZE + axis] = Math.nextDown((float) min);
+                bounds[polygon * BOX_SIZE + axis + 3] = Math.nextUp((float) max);
+                centroids[polygon * 3 + axis] = (float) ((min + max) / 2);
+            }
+        }
+
+        return new Builder(mesh, polygons, centroids, bounds).build();
+    }
+
+    // Finds the closest polygon the ray o + t * d hits for t in (tMin, tMax).
+    // Both sides of the polygons are hit. Returns false and leaves the hit untouched on a miss.
+    public boolean intersect(double ox, double oy, double oz, double dx, double dy, double dz,
+                             double tMin, double tMax, RayHit hit) {
+        if (mesh.getPolygonsCount() == 0)
+            return false;
+
+        final var inverseX = 1 / nonZero(dx);
+        final var inverseY = 1 / nonZero(dy);
+        final var inverseZ = 1 / nonZero(dz);
+
+        final var stack = new int[depth + 1];
+        var stackSize = 0;
+        var closest = tMax;
+        var closestPolygon = -1;
+        var closestU = 0d;
+        var closestV = 0d;
+
+        if (enter(0, ox, oy, oz, inverseX, inverseY, inverseZ, tMin, closest) < Double.POSITIVE_INFINITY)
+            stack[stackSize++] = 0;
+
+        while (stackSize > 0) {
+            final var node = stack[--stackSize];
+
+            if (nodes[node * 2 + 1] >= 0) {
+                final var from = nodes[node * 2];
+                final var to = from + nodes[node * 2 + 1];
+
+                for (var i = from; i < to; i++) {
+                    final var polygon = polygons[i];
+                    final var p1 = mesh.getP1(polygon);
+                    final var p2 = mesh.getP2(polygon);
+                    final var p3 = mesh.getP3(polygon);
+
+                    // Moller-Trumbore
+                    final var x1 = mesh.getX(p1);
+                    final var y1 = mesh.getY(p1);
+                    final var z1 = mesh.getZ(p1);
+                    final var e1x = mesh.getX(p2) - x1;
+                    final var e1y = mesh.getY(p2) - y1;
+                    final var e1z = mesh.getZ(p2) - z1;
+                    final var e2x = mesh.getX(p3) - x1;
+                    final var e2y = mesh.getY(p3) - y1;
+                    final var e2z = mesh.getZ(p3) - z1;
+
+                    final var px = dy * e2z - dz * e2y;
+                    final var py = dz * e2x - dx * e2z;
+                    final var pz = dx * e2y - dy * e2x;
+                    final var determinant = e1x * px + e1y * py + e1z * pz;
+                    if (determinant == 0)
+                        continue;
+
+                    final var inverse = 1 / determinant;
+                    final var tx = ox - x1;
+                    final var ty = oy - y1;
+                    final var tz = oz - z1;
+                    final var u = (tx * px + ty * py + tz * pz) * inverse;
+                    if (u < 0 || u > 1)
+                        continue;
+
+                    final var qx = ty * e1z - tz * e1y;
+                    final var qy = tz * e1x - tx * e1z;
+                    final var qz = tx * e1y - ty * e1x;
+                    final var v = (dx * qx + dy * qy + dz * qz) * inverse;
+                    if (v < 0 || u + v > 1)
+                        continue;
+
+                    final var t = (e2x * qx + e2y * qy + e2z * qz) * inverse;
+                    if (t > tMin && t < closest) {
+                        closest = t;
+                        closestPolygon = polygon;
+                        closestU = u;
+                        closestV = v;
+                    }
+                }
+
+                continue;
+            }
+
+            // The nearer child goes on top of the stack, the farther one is skipped
+            // when a closer hit is found in the meantime
+            final var left = nodes[node * 2];
+            final var right = left + 1;
+            final var leftEntry = enter(left, ox, oy, oz, inverseX, inverseY, inverseZ, tMin, closest);
+            final var rightEntry = enter(right, ox, oy, oz, inverseX, inverseY, inverseZ, tMin, closest);
+
+            if (leftEntry <= rightEntry) {
+                if (rightEntry < Double.POSITIVE_INFINITY)
+                    stack[stackSize++] = right;
+                if (leftEntry < Double.POSITIVE_INFINITY)
+                    stack[stackSize++] = left;
+            }
+            else {
+                if (leftEntry < Double.POSITIVE_INFINITY)
+                    stack[stackSize++] = left;
+                stack[stackSize++] = right;
+            }
+        }
+
+        if (closestPolygon < 0)
+            return false;
+
+        hit.polygon = closestPolygon;
+        hit.t = closest;
+        hit.u = closestU;
+        hit.v = closestV;
+        return true;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getSizeInBytes() {
+        return (long) boxes.length * Float.BYTES + (long) (nodes.length + polygons.length) * Integer.BYTES;
+    }
+
+    // Helpers
+
+    // Parameter where the ray enters the node box within (tMin, tMax), infinity on a miss
+    private double enter(int node, double ox, double oy, double oz, double inverseX, double inverseY, double inverseZ,
+                         double tMin, double tMax) {
+        final var offset = node * BOX_SIZE;
+
+        final var x1 = (boxes[offset] - ox) * inverseX;
+        final var x2 = (boxes[offset + 3] - ox) * inverseX;
+        final var y1 = (boxes[offset + 1] - oy) * inverseY;
+        final var y2 = (boxes[offset + 4] - oy) * inverseY;
+        final var z1 = (boxes[offset + 2] - oz) * inverseZ;
+        final var z2 = (boxes[offset + 5] - oz) * inverseZ;
+
+        final var near = Math.max(Math.max(Math.min(x1, x2), Math.min(y1, y2)), Math.max(Math.min(z1, z2), tMin));
+        final var far = Math.min(Math.min(Math.max(x1, x2), Math.max(y1, y2)), Math.min(Math.max(z1, z2), tMax));
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+
+    private static double nonZero(double direction) {
+        return Math.abs(direction) < MIN_DIRECTION ? Math.copySign(MIN_DIRECTION, direction) : direction;
+    }
+
+    private static double coordinate(Mesh mesh, int node, int axis) {
+        return axis == 0 ? mesh.getX(node) : axis == 1 ? mesh.getY(node) : mesh.getZ(node);
+    }
+
+    private static final class Builder {
+
+        private final Mesh mesh;
+        private final int[] polygons;
+        private final float[] centroids;
+        private final float[] bounds;
+
+        private float[] boxes;
+        private int[] nodes;
+        private int nodesCount;
+        private int depth;
+
+        // Pending nodes: node, first polygon, end of the polygons, depth
+        private int[] stack = new int[64 * 4];
+
+        private final int[] binCounts = new int[BINS_COUNT];
+        private final float[] binBoxes = new float[BINS_COUNT * BOX_SIZE];
+        private final double[] rightAreas = new double[BINS_COUNT];
+        private final float[] box = new float[BOX_SIZE];
+
+        Builder(Mesh mesh, int[] polygons, float[] centroids, float[] bounds) {
+            this.mesh = mesh;
+            this.polygons = polygons;
+            this.centroids = centroids;
+            this.bounds = bounds;
+
+            final var capacity = Math.max(1, 2 * polygons.length - 1);
+            boxes = new float[capacity * BOX_SIZE];
+            nodes = new int[capacity * 2];
+        }
+
+        MeshBvh build() {
+            nodesCount = 1;
+            var stackSize = push(0, 0, 0, polygons.length, 0);
+
+            while (stackSize > 0) {
+                final var nodeDepth = stack[--stackSize];
+                final var to = stack[--stackSize];
+                final var from = stack[--stackSize];
+                final var node = stack[--stackSize];
+                depth = Math.max(depth, nodeDepth);
+
+                // Box of the polygons and of their centroids
+                reset(box, 0);
+                var minCentroidX = Float.MAX_VALUE;
+                var minCentroidY = Float.MAX_VALUE;
+                var minCentroidZ = Float.MAX_VALUE;
+                var maxCentroidX = -Float.MAX_VALUE;
+                var maxCentroidY = -Float.MAX_VALUE;
+                var maxCentroidZ = -Float.MAX_VALUE;
+                for (var i = from; i < to; i++) {
+                    final var polygon = polygons[i];
+                    grow(box, 0, bounds, polygon * BOX_SIZE);
+                    minCentroidX = Math.min(minCentroidX, centroids[polygon * 3]);
+                    minCentroidY = Math.min(minCentroidY, centroids[polygon * 3 + 1]);
+                    minCentroidZ = Math.min(minCentroidZ, centroids[polygon * 3 + 2]);
+                    maxCentroidX = Math.max(maxCentroidX, centroids[polygon * 3]);
+                    maxCentroidY = Math.max(maxCentroidY, centroids[polygon * 3 + 1]);
+                    maxCentroidZ = Math.max(maxCentroidZ, centroids[polygon * 3 + 2]);
+                }
+                System.arraycopy(box, 0, boxes, node * BOX_SIZE, BOX_SIZE);
+
+                final var count = to - from;
+                var axis = 0;
+                var minCentroid = minCentroidX;
+                var extent = maxCentroidX - minCentroidX;
+                if (maxCentroidY - minCentroidY > extent) {
+                    axis = 1;
+                    minCentroid = minCentroidY;
+                    extent = maxCentroidY - minCentroidY;
+                }
+                if (maxCentroidZ - minCentroidZ > extent) {
+                    axis = 2;
+                    minCentroid = minCentroidZ;
+                    extent = maxCentroidZ - minCentroidZ;
+                }
+
+                // Polygons with a common centroid can not be told apart by any split
+                if (count <= MAX_LEAF_SIZE || extent == 0) {
+                    makeLeaf(node, from, count);
+                    continue;
+                }
+
+                final var scale = BINS_COUNT / extent;
+                final var split = findSplit(from, to, axis, minCentroid, scale);
+
+                var middle = partition(from, to, axis, minCentroid, scale, split);
+                if (middle == from || middle == to)
+                    middle = (from + to) >>> 1;
+
+                final var left = nodesCount;
+                nodesCount += 2;
+                nodes[node * 2] = left;
+                nodes[node * 2 + 1] = -1 - axis;
+
+                stackSize = push(stackSize, left + 1, middle, to, nodeDepth + 1);
+                stackSize = push(stackSize, left, from, middle, nodeDepth + 1);
+            }
+
+            return new MeshBvh(mesh, Arrays.copyOf(boxes, nodesCount * BOX_SIZE), Arrays.copyOf(nodes, nodesCount * 2),
+                    polygons, depth);
+        }
+
+        // Last bin of the left side with the lowest sum of area times polygons count
+        private int findSplit(int from, int to, int axis, float minCentroid, double scale) {
+            Arrays.fill(binCounts, 0);
+            for (var bin = 0; bin < BINS_COUNT; bin++)
+                reset(binBoxes, bin * BOX_SIZE);
+
+            for (var i = from; i < to; i++) {
+                final var polygon = polygons[i];
+                final var bin = bin(centroids[polygon * 3 + axis], minCentroid, scale);
+                binCounts[bin]++;
+                grow(binBoxes, bin * BOX_SIZE, bounds, polygon * BOX_SIZE);
+            }
+
+            reset(box, 0);
+            for (var bin = BINS_COUNT - 1; bin > 0; bin--) {
+                grow(box, 0, binBoxes, bin * BOX_SIZE);
+                rightAreas[bin] = area(box);
+            }
+
+            reset(box, 0);
+            var leftCount = 0;
+            var bestCost = Double.MAX_VALUE;
+            var bestSplit = 0;
+            for (var bin = 0; bin < BINS_COUNT - 1; bin++) {
+                grow(box, 0, binBoxes, bin * BOX_SIZE);
+                leftCount += binCounts[bin];
+
+                final var cost = area(box) * leftCount + rightAreas[bin + 1] * (to - from - leftCount);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestSplit = bin;
+                }
+            }
+
+            return bestSplit;
+        }
+
+        private int partition(int from, int to, int axis, float minCentroid, double scale, int split) {
+            var i = from;
+            var j = to - 1;
+            while (i <= j) {
+                if (bin(centroids[polygons[i] * 3 + axis], minCentroid, scale) <= split) {
+                    i++;
+                    continue;
+                }
+
+                final var swap = polygons[i];
+                polygons[i] = polygons[j];
+                polygons[j--] = swap;
+            }
+
+            return i;
+        }
+
+        private void makeLeaf(int node, int from, int count) {
+            nodes[node * 2] = from;
+            nodes[node * 2 + 1] = count;
+        }
+
+        private int push(int stackSize, int node, int from, int to, int nodeDepth) {
+            if (stackSize + 4 > stack.length)
+                stack = Arrays.copyOf(stack, stack.length * 2);
+
+            stack[stackSize++] = node;
+            stack[stackSize++] = from;
+            stack[stackSize++] = to;
+            stack[stackSize++] = nodeDepth;
+            return stackSize;
+        }
+
+        private static int bin(float centroid, float minCentroid, double scale) {
+            return Math.min(BINS_COUNT - 1, (int) ((centroid - minCentroid) * scale));
+        }
+
+        private static void reset(float[] box, int offset) {
+            Arrays.fill(box, offset, offset + 3, Float.MAX_VALUE);
+            Arrays.fill(box, offset + 3, offset + BOX_SIZE, -Float.MAX_VALUE);
+        }
+
+        private static void grow(float[] box, int offset, float[] other, int otherOffset) {
+            for (var axis = 0; axis < 3; axis++) {
+                box[offset + axis] = Math.min(box[offset + axis], other[otherOffset + axis]);
+                box[offset + axis + 3] = Math.max(box[offset + axis + 3], other[otherOffset + axis + 3]);
+            }
+        }
+
+        private static double area(float[] box) {
+            final double x = box[3] - box[0];
+            final double y = box[4] - box[1];
+            final double z = box[5] - box[2];
+            return x < 0 ? 0 : x * y + y * z + z * x;
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+package app;
+
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Memoizes generated meshes by generator and resolution. Meshes are reordered for cache
+// locality once, when generated, unless the generator already orders them. The least
+// recently used meshes are evicted once their total size exceeds the capacity. A mesh keeps
+// its edges, face planes and ray hierarchy once it is drawn or picked, together several times
+// the size of the mesh itself. They are built after the mesh is cached, so every mesh is
+// charged for their upper bound right away.
+// Meshes are generated outside of any lock: the first caller of a key generates it,
+// later callers of the same key wait for that mesh, other keys are not held up.
+public final class MeshCache {
+
+    public static final long DEFAULT_CAPACITY_BYTES = 128L * 1024 * 1024;
+
+    private final long capacityBytes;
+    private final ConcurrentHashMap<Key, CompletableFuture<Mesh>> meshes = new ConcurrentHashMap<>();
+
+    // Generated meshes in access order, guarded by itself together with sizeBytes
+    private final LinkedHashMap<Key, Mesh> recentlyUsed = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    public MeshCache() {
+        this(DEFAULT_CAPACITY_BYTES);
+    }
+
+    public MeshCache(long capacityBytes) {
+        if (capacityBytes < 0)
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacityBytes);
+
+        this.capacityBytes = capacityBytes;
+    }
+
+    public Mesh get(MeshGenerator generator) {
+        return get(generator, generator.getDefaultResolution());
+    }
+
+    public Mesh get(MeshGenerator generator, int resolution) {
+        final var key = new Key(generator, resolution);
+
+        var future = meshes.get(key);
+        if (future == null) {
+            final var created = new CompletableFuture<Mesh>();
+            future = meshes.putIfAbsent(key, created);
+            if (future == null)
+                return generate(key, generator, resolution, created);
+        }
+
+        final Mesh mesh;
+        try {
+            mesh = future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+
+        // Only marks the mesh as used, it may have been evicted meanwhile
+        synchronized (recentlyUsed) {
+            recentlyUsed.get(key);
+        }
+
+        return mesh;
+    }
+
+    public void clear() {
+        synchronized (recentlyUsed) {
+            meshes.clear();
+            recentlyUsed.clear();
+            sizeBytes = 0;
+        }
+    }
+
+    public int getMeshesCount() {
+        synchronized (recentlyUsed) {
+            return recentlyUsed.size();
+        }
+    }
+
+    public long getSizeInBytes() {
+        synchronized (recentlyUsed) {
+            return sizeBytes;
+        }
+    }
+
+    // Helpers
+
+    private Mesh generate(Key key, MeshGenerator generator, int resolution, CompletableFuture<Mesh> future) {
+        Mesh mesh;
+        try {
+            mesh = generator.getMesh(resolution);
+            if (!generator.isLocallyOrdered())
+                mesh = MeshOptimizer.optimize(mesh);
+        }
+        catch (RuntimeException | Error e) {
+            // Failures are not cached, the waiting callers get the same exception
+            meshes.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+
+        future.complete(mesh);
+        put(key, mesh, future);
+        return mesh;
+    }
+
+    private void put(Key key, Mesh mesh, CompletableFuture<Mesh> future) {
+        final var meshBytes = getChargedBytes(mesh);
+
+        synchronized (recentlyUsed) {
+            // Cleared while it was generated, or too large to be kept at all
+            if (meshes.get(key) != future)
+                return;
+            if (meshBytes > capacityBytes) {
+                meshes.remove(key, future);
+                return;
+            }
+
+            recentlyUsed.put(key, mesh);
+            sizeBytes += meshBytes;
+
+            final var iterator = recentlyUsed.entrySet().iterator();
+            while (sizeBytes > capacityBytes) {
+                final var entry = iterator.next();
+                sizeBytes -= getChargedBytes(entry.getValue());
+                meshes.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long getChargedBytes(Mesh mesh) {
+        final var derivedBytesPerPolygon = MeshEdges.MAX_BYTES_PER_POLYGON + FacePlanes.BYTES_PER_POLYGON + MeshBvh.MAX_BYTES_PER_POLYGON;
+        return mesh.getSizeInBytes() + (long) mesh.getPolygonsCount() * derivedBytesPerPolygon;
+    }
+
+    private static final class Key {
+
+        final Object source;
+        final int resolution;
+
+        Key(Object source, int resolution) {
+            this.source = source;
+            this.resolution = resolution;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            final var key = (Key) o;
+            return resolution == key.resolution && source.equals(key.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, resolution);
+        }
+
+    }
+
+}
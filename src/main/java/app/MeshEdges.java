@@ -0,0 +1,105 @@
+package app;
+
+import java.util.Arrays;
+
+// Unique edges of a mesh together with the (at most two) polygons sharing each edge.
+// An edge shared by more than two polygons is listed once per extra pair of polygons.
+public final class MeshEdges {
+
+    public static final int NO_POLYGON = -1;
+
+    // At most three edges per polygon, each with two nodes and two polygons
+    public static final int MAX_BYTES_PER_POLYGON = Mesh.POLYGON_SIZE * 4 * Integer.BYTES;
+
+    private final int[] nodes;
+    private final int[] polygons;
+    private final int edgesCount;
+
+    private MeshEdges(int[] nodes, int[] polygons, int edgesCount) {
+        this.nodes = nodes;
+        this.polygons = polygons;
+        this.edgesCount = edgesCount;
+    }
+
+    static MeshEdges of(Mesh mesh) {
+        final var polygonsCount = mesh.getPolygonsCount();
+        final var maxEdges = polygonsCount * 3;
+
+        final var nodes = new int[maxEdges * 2];
+        final var polygons = new int[maxEdges * 2];
+        var edgesCount = 0;
+
+        // Open addressing map from the packed node pair to the last edge with that pair
+        final var capacity = Integer.highestOneBit(maxEdges + maxEdges / 3 + 1) << 1;
+        final var keys = new long[capacity];
+        final var values = new int[capacity];
+        Arrays.fill(values, -1);
+        final var mask = capacity - 1;
+
+        for (var polygon = 0; polygon < polygonsCount; polygon++)
+            for (var corner = 0; corner < Mesh.POLYGON_SIZE; corner++) {
+                final var a = mesh.getIndex(polygon * Mesh.POLYGON_SIZE + corner);
+                final var b = mesh.getIndex(polygon * Mesh.POLYGON_SIZE + (corner + 1) % Mesh.POLYGON_SIZE);
+                if (a == b)
+                    continue;
+
+                final var from = Math.min(a, b);
+                final var to = Math.max(a, b);
+                final var key = (long) from << 32 | to;
+
+                var slot = (int) (mix(key) & mask);
+                while (values[slot] != -1 && keys[slot] != key)
+                    slot = (slot + 1) & mask;
+
+                final var edge = values[slot];
+                if (edge != -1 && polygons[edge * 2 + 1] == NO_POLYGON) {
+                    if (polygons[edge * 2] != polygon)
+                        polygons[edge * 2 + 1] = polygon;
+                    continue;
+                }
+
+                nodes[edgesCount * 2] = from;
+                nodes[edgesCount * 2 + 1] = to;
+                polygons[edgesCount * 2] = polygon;
+                polygons[edgesCount * 2 + 1] = NO_POLYGON;
+
+                keys[slot] = key;
+                values[slot] = edgesCount++;
+            }
+
+        return new MeshEdges(Arrays.copyOf(nodes, edgesCount * 2), Arrays.copyOf(polygons, edgesCount * 2), edgesCount);
+    }
+
+    public int getEdgesCount() {
+        return edgesCount;
+    }
+
+    public int getFrom(int edge) {
+        return nodes[edge * 2];
+    }
+
+    public int getTo(int edge) {
+        return nodes[edge * 2 + 1];
+    }
+
+    public int getFirstPolygon(int edge) {
+        return polygons[edge * 2];
+    }
+
+    // NO_POLYGON for border edges
+    public int getSecondPolygon(int edge) {
+        return polygons[edge * 2 + 1];
+    }
+
+    public long getSizeInBytes() {
+        return (long) (nodes.length + polygons.length) * Integer.BYTES;
+    }
+
+    // Helpers
+
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 31);
+    }
+
+}
@@ -0,0 +1,135 @@
+package app;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Compact binary mesh format, all values little-endian:
+//   header  magic "MESH", version, bytes per coordinate (4 or 8), nodes count, polygons count, orientation
+//   nodes   nodes count * 3 floats or doubles, packed x, y, z
+//   indices polygons count * 3 ints
+// The header is 24 bytes, so the node block stays aligned for doubles. The orientation is the ordinal
+// of Mesh.Orientation. Version 1 had it reserved as 0, its meshes were all oriented by the origin.
+// Blocks are memory mapped and moved with bulk copies between the mapping and the mesh arrays.
+public final class MeshFile {
+
+    public static final String EXTENSION = "mesh";
+
+    private static final int MAGIC = 'M' | 'E' << 8 | 'S' << 16 | 'H' << 24;
+    private static final int VERSION = 2;
+    private static final int ORIGIN_ORIENTED_VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    // A single mapping is limited to 2 GB, larger blocks are mapped in parts
+    private static final long MAX_MAPPING_SIZE = 1 << 30;
+
+    private MeshFile() {
+    }
+
+    public static void save(Mesh mesh, Path file) throws IOException {
+        final var coordinateSize = mesh.getPrecision() == Mesh.Precision.DOUBLE ? Double.BYTES : Float.BYTES;
+        final var coordinatesCount = (long) mesh.getNodesCount() * Mesh.NODE_SIZE;
+        final var indicesCount = (long) mesh.getPolygonsCount() * Mesh.POLYGON_SIZE;
+        final var indicesPosition = HEADER_SIZE + coordinatesCount * coordinateSize;
+
+        try (final var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final var header = map(channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(coordinateSize)
+                    .putInt(mesh.getNodesCount())
+                    .putInt(mesh.getPolygonsCount())
+                    .putInt(mesh.getOrientation().ordinal());
+
+            for (var offset = 0L; offset < coordinatesCount; offset += MAX_MAPPING_SIZE / coordinateSize) {
+                final var length = (int) Math.min(MAX_MAPPING_SIZE / coordinateSize, coordinatesCount - offset);
+                final var block = map(channel, FileChannel.MapMode.READ_WRITE, HEADER_SIZE + offset * coordinateSize, (long) length * coordinateSize);
+
+                if (mesh.getPrecision() == Mesh.Precision.DOUBLE)
+                    block.asDoubleBuffer().put(mesh.getDoubleNodes(), (int) offset, length);
+                else
+                    block.asFloatBuffer().put(mesh.getFloatNodes(), (int) offset, length);
+            }
+
+            for (var offset = 0L; offset < indicesCount; offset += MAX_MAPPING_SIZE / Integer.BYTES) {
+                final var length = (int) Math.min(MAX_MAPPING_SIZE / Integer.BYTES, indicesCount - offset);
+                final var block = map(channel, FileChannel.MapMode.READ_WRITE, indicesPosition + offset * Integer.BYTES, (long) length * Integer.BYTES);
+                block.asIntBuffer().put(mesh.getIndices(), (int) offset, length);
+            }
+        }
+    }
+
+    public static Mesh load(Path file) throws IOException {
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE)
+                throw new IOException("Not a mesh file: " + file);
+
+            final var header = map(channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            final var magic = header.getInt();
+            final var version = header.getInt();
+            final var coordinateSize = header.getInt();
+            final var nodesCount = header.getInt();
+            final var polygonsCount = header.getInt();
+            final var orientation = header.getInt();
+
+            if (magic != MAGIC)
+                throw new IOException("Not a mesh file: " + file);
+            if (version != VERSION && version != ORIGIN_ORIENTED_VERSION)
+                throw new IOException("Unsupported mesh file version " + version + ": " + file);
+            if (version == VERSION && (orientation < 0 || orientation >= Mesh.Orientation.values().length))
+                throw new IOException("Unsupported orientation " + orientation + ": " + file);
+            if (coordinateSize != Double.BYTES && coordinateSize != Float.BYTES)
+                throw new IOException("Unsupported coordinate size " + coordinateSize + ": " + file);
+            if (nodesCount < 0 || nodesCount > Integer.MAX_VALUE / Mesh.NODE_SIZE
+                    || polygonsCount < 0 || polygonsCount > Integer.MAX_VALUE / Mesh.POLYGON_SIZE)
+                throw new IOException("Corrupted mesh file header: " + file);
+
+            final var coordinatesCount = nodesCount * Mesh.NODE_SIZE;
+            final var indicesCount = polygonsCount * Mesh.POLYGON_SIZE;
+            final var indicesPosition = HEADER_SIZE + (long) coordinatesCount * coordinateSize;
+            if (channel.size() != indicesPosition + (long) indicesCount * Integer.BYTES)
+                throw new IOException("Truncated mesh file: " + file);
+
+            final var doubleNodes = coordinateSize == Double.BYTES ? new double[coordinatesCount] : null;
+            final var floatNodes = coordinateSize == Float.BYTES ? new float[coordinatesCount] : null;
+            final var indices = new int[indicesCount];
+
+            for (var offset = 0L; offset < coordinatesCount; offset += MAX_MAPPING_SIZE / coordinateSize) {
+                final var length = (int) Math.min(MAX_MAPPING_SIZE / coordinateSize, coordinatesCount - offset);
+                final var block = map(channel, FileChannel.MapMode.READ_ONLY, HEADER_SIZE + offset * coordinateSize, (long) length * coordinateSize);
+
+                if (doubleNodes != null)
+                    block.asDoubleBuffer().get(doubleNodes, (int) offset, length);
+                else
+                    block.asFloatBuffer().get(floatNodes, (int) offset, length);
+            }
+
+            for (var offset = 0L; offset < indicesCount; offset += MAX_MAPPING_SIZE / Integer.BYTES) {
+                final var length = (int) Math.min(MAX_MAPPING_SIZE / Integer.BYTES, indicesCount - offset);
+                final var block = map(channel, FileChannel.MapMode.READ_ONLY, indicesPosition + offset * Integer.BYTES, (long) length * Integer.BYTES);
+                block.asIntBuffer().get(indices, (int) offset, length);
+            }
+
+            // Indices come from outside, a broken one would only fail much later while rendering
+            for (final var index : indices)
+                if (index < 0 || index >= nodesCount)
+                    throw new IOException("Node index out of range " + index + ": " + file);
+
+            final var mesh = doubleNodes != null ? Mesh.wrap(doubleNodes, indices) : Mesh.wrap(floatNodes, indices);
+            return mesh.withOrientation(version == VERSION ? Mesh.Orientation.values()[orientation] : Mesh.Orientation.ORIGIN);
+        }
+    }
+
+    // Helpers
+
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long size) throws IOException {
+        final var buffer = channel.map(mode, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+}
@@ -0,0 +1,38 @@
+package app;
+
+// Source of a shape at a range of resolutions. The figures are built in, other generators
+// are provided as services and found by MeshGenerators, so a new shape does not touch Figure.
+// Providers need a public no-argument constructor and must be safe to call from any thread.
+// Polygons are expected to be wound consistently, see Mesh.Orientation.
+public interface MeshGenerator {
+
+    // Shown in the figure menu, a name with spaces replaced by underscores selects it by name
+    String getName();
+
+    Mesh getMesh(int resolution);
+
+    int getDefaultResolution();
+
+    int getMinResolution();
+
+    int getMaxResolution();
+
+    default Mesh getMesh() {
+        return getMesh(getDefaultResolution());
+    }
+
+    // Resolutions one step of detail up and down
+    default int getFinerResolution(int resolution) {
+        return resolution + 1;
+    }
+
+    default int getCoarserResolution(int resolution) {
+        return resolution - 1;
+    }
+
+    // Meshes that already come out in a cache friendly order are not reordered by MeshOptimizer
+    default boolean isLocallyOrdered() {
+        return false;
+    }
+
+}
@@ -0,0 +1,68 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+// Generators provided as services, looked up once. A provider that fails to load
+// is reported and skipped, the others are still available.
+public final class MeshGenerators {
+
+    private static final List<MeshGenerator> GENERATORS = load();
+
+    private MeshGenerators() {
+    }
+
+    // Sorted by name, figures are not included
+    public static List<MeshGenerator> getAll() {
+        return GENERATORS;
+    }
+
+    // A figure or a generator, the name is case insensitive and may use underscores for spaces
+    public static MeshGenerator find(String name) {
+        for (final var figure : Figure.values())
+            if (matches(figure, name))
+                return figure;
+
+        for (final var generator : GENERATORS)
+            if (matches(generator, name))
+                return generator;
+
+        throw new IllegalArgumentException("Unknown figure " + name);
+    }
+
+    // Name of the generator as a file name
+    public static String getFileName(MeshGenerator generator) {
+        return generator.getName().toLowerCase(Locale.ROOT).replace(' ', '_');
+    }
+
+    // Helpers
+
+    private static boolean matches(MeshGenerator generator, String name) {
+        return generator.getName().replace(' ', '_').equalsIgnoreCase(name.replace(' ', '_'));
+    }
+
+    private static List<MeshGenerator> load() {
+        final var result = new ArrayList<MeshGenerator>();
+        final var iterator = ServiceLoader.load(MeshGenerator.class, MeshGenerator.class.getClassLoader()).iterator();
+
+        while (true) {
+            try {
+                if (!iterator.hasNext())
+                    break;
+
+                result.add(iterator.next());
+            }
+            catch (ServiceConfigurationError e) {
+                System.out.println("Whoops, something went wrong: " + e);
+            }
+        }
+
+        result.sort(Comparator.comparing(MeshGenerator::getName));
+        return List.copyOf(result);
+    }
+
+}
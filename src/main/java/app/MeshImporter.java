@@ -0,0 +1,29 @@
+package app;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+// Loads external meshes, the format is chosen by the file extension. Foreign formats
+// are reordered for cache locality, saved meshes already come out of the app reordered.
+public final class MeshImporter {
+
+    public static final String[] EXTENSIONS = { "obj", "stl", MeshFile.EXTENSION };
+
+    private MeshImporter() {
+    }
+
+    public static Mesh load(Path file) throws IOException {
+        final var name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        if (name.endsWith(".obj"))
+            return MeshOptimizer.optimize(ObjReader.read(file));
+        if (name.endsWith(".stl"))
+            return MeshOptimizer.optimize(StlReader.read(file));
+        if (name.endsWith("." + MeshFile.EXTENSION))
+            return MeshFile.load(file);
+
+        throw new IOException("Unsupported mesh format: " + file);
+    }
+
+}
@@ -0,0 +1,257 @@
+package app;
+
+import app.Rendering.RadixSorter;
+
+import java.util.Arrays;
+
+// Reorders a mesh for memory locality without changing its shape. Nodes are sorted along
+// a Morton curve through the bounding box, so nodes close in space are close in memory.
+// Polygons are then reordered with Forsyth's linear-speed vertex cache optimisation:
+// the next polygon is the best scored one around the nodes used last, which walks
+// the surface in strips and keeps revisiting the same few nodes.
+public final class MeshOptimizer {
+
+    // Size of the simulated cache of recently used nodes
+    public static final int CACHE_SIZE = 32;
+
+    private static final int MORTON_BITS = 10;
+    private static final double CACHE_DECAY_POWER = 1.5;
+    private static final double LAST_POLYGON_SCORE = 0.75;
+    private static final double VALENCE_BOOST_SCALE = 2;
+    private static final double VALENCE_BOOST_POWER = 0.5;
+    private static final int VALENCE_BOOSTS_COUNT = 64;
+
+    private static final double[] CACHE_SCORES = new double[CACHE_SIZE];
+    private static final double[] VALENCE_BOOSTS = new double[VALENCE_BOOSTS_COUNT];
+
+    static {
+        // Nodes of the last polygon score a fixed amount, the others decay with their position
+        for (var position = 0; position < CACHE_SIZE; position++)
+            CACHE_SCORES[position] = position < Mesh.POLYGON_SIZE
+                    ? LAST_POLYGON_SCORE
+                    : Math.pow(1 - (position - Mesh.POLYGON_SIZE) / (double) (CACHE_SIZE - Mesh.POLYGON_SIZE), CACHE_DECAY_POWER);
+
+        for (var remaining = 1; remaining < VALENCE_BOOSTS_COUNT; remaining++)
+            VALENCE_BOOSTS[remaining] = valenceBoost(remaining);
+    }
+
+    private MeshOptimizer() {
+    }
+
+    public static Mesh optimize(Mesh mesh) {
+        if (mesh.getNodesCount() == 0 || mesh.getPolygonsCount() == 0)
+            return mesh;
+
+        final var order = mortonOrder(mesh);
+        final var nodesCount = mesh.getNodesCount();
+        final var newNodes = new int[nodesCount];
+        for (var i = 0; i < nodesCount; i++)
+            newNodes[order[i]] = i;
+
+        final var indices = new int[mesh.getPolygonsCount() * Mesh.POLYGON_SIZE];
+        for (var i = 0; i < indices.length; i++)
+            indices[i] = newNodes[mesh.getIndex(i)];
+
+        // Nodes are moved in the precision of the mesh, once the adjacency of the polygons is gone
+        final var polygons = reorderPolygons(indices, nodesCount);
+        final var result = mesh.getPrecision() == Mesh.Precision.DOUBLE
+                ? Mesh.wrap(reorderNodes(mesh.getDoubleNodes(), order), polygons)
+                : Mesh.wrap(reorderNodes(mesh.getFloatNodes(), order), polygons);
+
+        return result.withOrientation(mesh.getOrientation());
+    }
+
+    // Helpers
+
+    // Nodes sorted by the Morton code of their cell in a 2^MORTON_BITS grid over the bounding box
+    private static int[] mortonOrder(Mesh mesh) {
+        final var nodesCount = mesh.getNodesCount();
+        final var min = new double[] { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+        final var max = new double[] { -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+
+        for (var node = 0; node < nodesCount; node++)
+            for (var axis = 0; axis < Mesh.NODE_SIZE; axis++) {
+                final var value = coordinate(mesh, node, axis);
+                min[axis] = Math.min(min[axis], value);
+                max[axis] = Math.max(max[axis], value);
+            }
+
+        final var cells = (1 << MORTON_BITS) - 1;
+        final var codes = new int[nodesCount];
+        final var order = new int[nodesCount];
+
+        for (var node = 0; node < nodesCount; node++) {
+            var code = 0;
+            for (var axis = 0; axis < Mesh.NODE_SIZE; axis++) {
+                final var extent = max[axis] - min[axis];
+                final var cell = extent > 0 ? (int) ((coordinate(mesh, node, axis) - min[axis]) / extent * cells) : 0;
+                code |= spreadBits(Math.max(0, Math.min(cells, cell))) << axis;
+            }
+
+            codes[node] = code;
+            order[node] = node;
+        }
+
+        new RadixSorter(null, RadixSorter.DEFAULT_CHUNK_SIZE).sort(codes, order, nodesCount);
+        return order;
+    }
+
+    private static double[] reorderNodes(double[] source, int[] order) {
+        final var result = new double[source.length];
+        for (var i = 0; i < order.length; i++) {
+            final var from = order[i] * Mesh.NODE_SIZE;
+            result[i * Mesh.NODE_SIZE] = source[from];
+            result[i * Mesh.NODE_SIZE + 1] = source[from + 1];
+            result[i * Mesh.NODE_SIZE + 2] = source[from + 2];
+        }
+
+        return result;
+    }
+
+    private static float[] reorderNodes(float[] source, int[] order) {
+        final var result = new float[source.length];
+        for (var i = 0; i < order.length; i++) {
+            final var from = order[i] * Mesh.NODE_SIZE;
+            result[i * Mesh.NODE_SIZE] = source[from];
+            result[i * Mesh.NODE_SIZE + 1] = source[from + 1];
+            result[i * Mesh.NODE_SIZE + 2] = source[from + 2];
+        }
+
+        return result;
+    }
+
+    private static double coordinate(Mesh mesh, int node, int axis) {
+        return axis == 0 ? mesh.getX(node) : axis == 1 ? mesh.getY(node) : mesh.getZ(node);
+    }
+
+    // Puts two zero bits after each of the lower 10 bits
+    private static int spreadBits(int value) {
+        value = (value | value << 16) & 0x030000FF;
+        value = (value | value << 8) & 0x0300F00F;
+        value = (value | value << 4) & 0x030C30C3;
+        value = (value | value << 2) & 0x09249249;
+        return value;
+    }
+
+    private static int[] reorderPolygons(int[] indices, int nodesCount) {
+        final var polygonsCount = indices.length / Mesh.POLYGON_SIZE;
+
+        // Polygons around every node, the first remaining[node] of them are not emitted yet
+        final var offsets = new int[nodesCount + 1];
+        for (final var node : indices)
+            offsets[node + 1]++;
+        for (var node = 0; node < nodesCount; node++)
+            offsets[node + 1] += offsets[node];
+
+        final var remaining = new int[nodesCount];
+        final var adjacent = new int[indices.length];
+        for (var i = 0; i < indices.length; i++) {
+            final var node = indices[i];
+            adjacent[offsets[node] + remaining[node]++] = i / Mesh.POLYGON_SIZE;
+        }
+
+        final var cachePositions = new int[nodesCount];
+        Arrays.fill(cachePositions, -1);
+        final var nodeScores = new double[nodesCount];
+        for (var node = 0; node < nodesCount; node++)
+            nodeScores[node] = score(-1, remaining[node]);
+
+        final var polygonScores = new double[polygonsCount];
+        final var isEmitted = new boolean[polygonsCount];
+        var best = -1;
+        for (var polygon = 0; polygon < polygonsCount; polygon++) {
+            polygonScores[polygon] = polygonScore(indices, nodeScores, polygon);
+            if (best == -1 || polygonScores[polygon] > polygonScores[best])
+                best = polygon;
+        }
+
+        final var result = new int[indices.length];
+        var cache = new int[CACHE_SIZE + Mesh.POLYGON_SIZE];
+        var nextCache = new int[CACHE_SIZE + Mesh.POLYGON_SIZE];
+        var cacheCount = 0;
+        var cursor = 0;
+
+        for (var emitted = 0; emitted < polygonsCount; emitted++) {
+            // Nothing left around the cache, start over at the first polygon not emitted yet
+            if (best == -1) {
+                while (isEmitted[cursor])
+                    cursor++;
+                best = cursor;
+            }
+
+            final var polygon = best;
+            isEmitted[polygon] = true;
+
+            var nextCount = 0;
+            for (var corner = 0; corner < Mesh.POLYGON_SIZE; corner++) {
+                final var node = indices[polygon * Mesh.POLYGON_SIZE + corner];
+                result[emitted * Mesh.POLYGON_SIZE + corner] = node;
+
+                // Swap the polygon out of the remaining ones of the node
+                final var from = offsets[node];
+                final var last = from + --remaining[node];
+                for (var i = from; i <= last; i++)
+                    if (adjacent[i] == polygon) {
+                        adjacent[i] = adjacent[last];
+                        adjacent[last] = polygon;
+                        break;
+                    }
+
+                // Nodes repeated within a polygon go to the cache once
+                if (cachePositions[node] != -2) {
+                    cachePositions[node] = -2;
+                    nextCache[nextCount++] = node;
+                }
+            }
+
+            for (var i = 0; i < cacheCount; i++)
+                if (cachePositions[cache[i]] != -2)
+                    nextCache[nextCount++] = cache[i];
+
+            // Nodes past the cache size are evicted, their scores still change
+            best = -1;
+            for (var i = 0; i < nextCount; i++) {
+                final var node = nextCache[i];
+                cachePositions[node] = i < CACHE_SIZE ? i : -1;
+                nodeScores[node] = score(cachePositions[node], remaining[node]);
+            }
+
+            for (var i = 0; i < nextCount; i++) {
+                final var node = nextCache[i];
+                for (var j = offsets[node]; j < offsets[node] + remaining[node]; j++) {
+                    final var candidate = adjacent[j];
+                    polygonScores[candidate] = polygonScore(indices, nodeScores, candidate);
+                    if (best == -1 || polygonScores[candidate] > polygonScores[best])
+                        best = candidate;
+                }
+            }
+
+            final var swap = cache;
+            cache = nextCache;
+            nextCache = swap;
+            cacheCount = Math.min(nextCount, CACHE_SIZE);
+        }
+
+        return result;
+    }
+
+    private static double polygonScore(int[] indices, double[] nodeScores, int polygon) {
+        return nodeScores[indices[polygon * Mesh.POLYGON_SIZE]]
+                + nodeScores[indices[polygon * Mesh.POLYGON_SIZE + 1]]
+                + nodeScores[indices[polygon * Mesh.POLYGON_SIZE + 2]];
+    }
+
+    // Nodes with few polygons left are boosted, so no lonely polygon stays behind
+    private static double score(int cachePosition, int remaining) {
+        if (remaining == 0)
+            return -1;
+
+        final var cacheScore = cachePosition >= 0 ? CACHE_SCORES[cachePosition] : 0;
+        return cacheScore + (remaining < VALENCE_BOOSTS_COUNT ? VALENCE_BOOSTS[remaining] : valenceBoost(remaining));
+    }
+
+    private static double valenceBoost(int remaining) {
+        return VALENCE_BOOST_SCALE * Math.pow(remaining, -VALENCE_BOOST_POWER);
+    }
+
+}
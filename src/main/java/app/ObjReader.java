@@ -0,0 +1,123 @@
+package app;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+// Wavefront OBJ reader for the geometry only: "v" nodes and "f" polygons, everything else
+// is skipped. Chunks are scanned twice in parallel. The first pass counts nodes and triangles
+// per chunk, so the second one can parse straight into the final arrays at known offsets,
+// which also resolves the relative (negative) indices.
+// Polygons with more than three nodes are split into a triangle fan.
+final class ObjReader {
+
+    private ObjReader() {
+    }
+
+    static Mesh read(Path file) throws IOException {
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final var chunks = AsciiScanner.split(channel, file);
+            final var nodeOffsets = new long[chunks.size() + 1];
+            final var triangleOffsets = new long[chunks.size() + 1];
+
+            try {
+                IntStream.range(0, chunks.size()).parallel().forEach(i -> {
+                    final var counts = count(chunks.get(i));
+                    nodeOffsets[i + 1] = counts[0];
+                    triangleOffsets[i + 1] = counts[1];
+                });
+
+                for (var i = 0; i < chunks.size(); i++) {
+                    nodeOffsets[i + 1] += nodeOffsets[i];
+                    triangleOffsets[i + 1] += triangleOffsets[i];
+                }
+
+                final var nodesCount = nodeOffsets[chunks.size()];
+                final var trianglesCount = triangleOffsets[chunks.size()];
+                if (nodesCount * Mesh.NODE_SIZE > Integer.MAX_VALUE || trianglesCount * Mesh.POLYGON_SIZE > Integer.MAX_VALUE)
+                    throw new IOException("Mesh is too large: " + file);
+
+                final var nodes = new float[(int) nodesCount * Mesh.NODE_SIZE];
+                final var indices = new int[(int) trianglesCount * Mesh.POLYGON_SIZE];
+
+                IntStream.range(0, chunks.size()).parallel().forEach(i ->
+                        parse(chunks.get(i), (int) nodeOffsets[i], (int) nodesCount, nodes, (int) triangleOffsets[i], indices));
+
+                return Mesh.wrap(nodes, indices);
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Helpers
+
+    private static long[] count(AsciiScanner scanner) {
+        var nodes = 0L;
+        var triangles = 0L;
+
+        while (scanner.hasRemaining()) {
+            scanner.skipSpaces();
+            if (scanner.skipKeyword("v"))
+                nodes++;
+            else if (scanner.skipKeyword("f"))
+                triangles += Math.max(0, scanner.countTokens() - 2);
+
+            scanner.skipLine();
+        }
+
+        return new long[] { nodes, triangles };
+    }
+
+    private static void parse(AsciiScanner scanner, int node, int nodesCount, float[] nodes, int triangle, int[] indices) {
+        scanner.rewind();
+
+        while (scanner.hasRemaining()) {
+            scanner.skipSpaces();
+
+            if (scanner.skipKeyword("v")) {
+                // An optional w or vertex color may follow, neither is used
+                nodes[node * Mesh.NODE_SIZE] = (float) scanner.parseDouble();
+                nodes[node * Mesh.NODE_SIZE + 1] = (float) scanner.parseDouble();
+                nodes[node * Mesh.NODE_SIZE + 2] = (float) scanner.parseDouble();
+                node++;
+            }
+            else if (scanner.skipKeyword("f")) {
+                final var refs = scanner.countTokens();
+                if (refs >= 3) {
+                    final var first = parseReference(scanner, node, nodesCount);
+                    var previous = parseReference(scanner, node, nodesCount);
+
+                    for (var i = 2; i < refs; i++) {
+                        final var current = parseReference(scanner, node, nodesCount);
+                        indices[triangle * Mesh.POLYGON_SIZE] = first;
+                        indices[triangle * Mesh.POLYGON_SIZE + 1] = previous;
+                        indices[triangle * Mesh.POLYGON_SIZE + 2] = current;
+                        previous = current;
+                        triangle++;
+                    }
+                }
+            }
+
+            scanner.skipLine();
+        }
+    }
+
+    // A reference is "v", "v/vt", "v//vn" or "v/vt/vn", only the node index is used.
+    // Indices are 1-based, negative ones count back from the last node read so far.
+    private static int parseReference(AsciiScanner scanner, int nodesRead, int nodesCount) {
+        final var index = scanner.parseInt();
+        scanner.skipToken();
+
+        final var node = index < 0 ? nodesRead + index : index - 1;
+        if (index == 0 || node < 0 || node >= nodesCount)
+            throw scanner.error("Node index out of range " + index);
+
+        return node;
+    }
+
+}
@@ -1,15 +0,0 @@
-package app;
-
-public final class Polygon {
-
-    int p1;
-    int p2;
-    int p3;
-
-    Polygon(int p1, int p2, int p3) {
-        this.p1 = p1;
-        this.p2 = p2;
-        this.p3 = p3;
-    }
-
-}
@@ -0,0 +1,51 @@
+package app.Profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Committed when a frame is presented while profiling is on, the stages are in the fields
+@Name("app.Frame")
+@Label("Frame")
+@Category({ "3D", "Rendering" })
+@Description("Stage times, polygons and allocations of a presented frame")
+@StackTrace(false)
+final class FrameEvent extends Event {
+
+    @Label("Cull")
+    @Timespan
+    long cull;
+
+    @Label("Transform")
+    @Timespan
+    long transform;
+
+    @Label("Visibility")
+    @Timespan
+    long visibility;
+
+    @Label("Draw")
+    @Timespan
+    long draw;
+
+    @Label("Frame Time")
+    @Description("Sum of the stage times")
+    @Timespan
+    long frameTime;
+
+    @Label("Polygons")
+    int polygons;
+
+    @Label("Culled Instances")
+    int culledInstances;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+
+}
@@ -0,0 +1,121 @@
+package app.Profiling;
+
+// Aggregates the timings of presented frames over windows of one second and keeps the
+// figures of the last complete window for display. Every frame is also committed as
+// a FrameEvent, so a flight recording has the same data frame by frame.
+// Confined to the UI thread.
+public final class FrameStatistics {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final LatencyHistogram frameTimes = new LatencyHistogram();
+    private final LatencyHistogram[] stageTimes = new LatencyHistogram[RenderStage.COUNT];
+    private long windowStart;
+    private long windowAllocatedBytes;
+
+    // Last complete window
+    private double framesPerSecond;
+    private long frameTimeP50;
+    private long frameTimeP99;
+    private final long[] stageTimeP50 = new long[RenderStage.COUNT];
+    private long allocatedBytesPerFrame;
+
+    // Last frame
+    private int polygons;
+    private int culledInstances;
+
+    public FrameStatistics() {
+        for (var i = 0; i < stageTimes.length; i++)
+            stageTimes[i] = new LatencyHistogram();
+    }
+
+    public void reset() {
+        frameTimes.reset();
+        for (final var histogram : stageTimes)
+            histogram.reset();
+
+        windowStart = System.nanoTime();
+        windowAllocatedBytes = 0;
+        framesPerSecond = 0;
+        frameTimeP50 = 0;
+        frameTimeP99 = 0;
+        allocatedBytesPerFrame = 0;
+    }
+
+    public void record(FrameTimings timings, int polygons, int culledInstances) {
+        final var frameTime = timings.getTotalNanos();
+        frameTimes.record(frameTime);
+        for (final var stage : RenderStage.values())
+            stageTimes[stage.ordinal()].record(timings.getNanos(stage));
+
+        windowAllocatedBytes += timings.getAllocatedBytes();
+        this.polygons = polygons;
+        this.culledInstances = culledInstances;
+
+        // Disabled events are never filled, and the allocation is then optimized away
+        final var event = new FrameEvent();
+        if (event.shouldCommit()) {
+            event.cull = timings.getNanos(RenderStage.CULL);
+            event.transform = timings.getNanos(RenderStage.TRANSFORM);
+            event.visibility = timings.getNanos(RenderStage.VISIBILITY);
+            event.draw = timings.getNanos(RenderStage.DRAW);
+            event.frameTime = frameTime;
+            event.polygons = polygons;
+            event.culledInstances = culledInstances;
+            event.allocated = timings.getAllocatedBytes();
+            event.commit();
+        }
+
+        final var now = System.nanoTime();
+        if (now - windowStart >= WINDOW_NANOS)
+            closeWindow(now);
+    }
+
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    public long getFrameTimeP50() {
+        return frameTimeP50;
+    }
+
+    public long getFrameTimeP99() {
+        return frameTimeP99;
+    }
+
+    public long getStageTimeP50(RenderStage stage) {
+        return stageTimeP50[stage.ordinal()];
+    }
+
+    public long getAllocatedBytesPerFrame() {
+        return allocatedBytesPerFrame;
+    }
+
+    public int getPolygons() {
+        return polygons;
+    }
+
+    public int getCulledInstances() {
+        return culledInstances;
+    }
+
+    // Helpers
+
+    private void closeWindow(long now) {
+        final var frames = frameTimes.getTotalCount();
+        framesPerSecond = frames * 1e9 / (now - windowStart);
+        frameTimeP50 = frameTimes.getValueAtPercentile(50);
+        frameTimeP99 = frameTimes.getValueAtPercentile(99);
+        for (final var stage : RenderStage.values())
+            stageTimeP50[stage.ordinal()] = stageTimes[stage.ordinal()].getValueAtPercentile(50);
+        allocatedBytesPerFrame = frames == 0 ? 0 : windowAllocatedBytes / frames;
+
+        frameTimes.reset();
+        for (final var histogram : stageTimes)
+            histogram.reset();
+
+        windowStart = now;
+        windowAllocatedBytes = 0;
+    }
+
+}
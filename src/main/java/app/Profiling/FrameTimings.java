@@ -0,0 +1,64 @@
+package app.Profiling;
+
+import java.util.Arrays;
+
+// Time spent in every stage of one frame and the bytes allocated for it.
+// Spans of a stage add up, so a stage may be timed once per frame item.
+// Written by one thread at a time, it travels with the frame it describes.
+public final class FrameTimings {
+
+    private final long[] nanos = new long[RenderStage.COUNT];
+    private long allocatedBytes;
+
+    public void reset() {
+        Arrays.fill(nanos, 0);
+        allocatedBytes = 0;
+    }
+
+    // start is the value Profiler.begin() returned when the span started
+    public void end(RenderStage stage, long start) {
+        if (start != 0)
+            nanos[stage.ordinal()] += System.nanoTime() - start;
+    }
+
+    public void add(RenderStage stage, long stageNanos) {
+        nanos[stage.ordinal()] += stageNanos;
+    }
+
+    public void addAllocatedBytes(long bytes) {
+        allocatedBytes += bytes;
+    }
+
+    // before is the value Profiler.getAllocatedBytes() returned at the start, the bytes are
+    // not counted when profiling was switched over in the meantime
+    public void addAllocatedBytesSince(long before) {
+        if (before == 0)
+            return;
+
+        final var after = Profiler.getAllocatedBytes();
+        if (after != 0)
+            allocatedBytes += after - before;
+    }
+
+    public long getNanos(RenderStage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        var total = 0L;
+        for (final var stageNanos : nanos)
+            total += stageNanos;
+
+        return total;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void copyTo(FrameTimings destination) {
+        System.arraycopy(nanos, 0, destination.nanos, 0, nanos.length);
+        destination.allocatedBytes = allocatedBytes;
+    }
+
+}
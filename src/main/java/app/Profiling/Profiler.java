@@ -0,0 +1,36 @@
+package app.Profiling;
+
+import java.lang.management.ManagementFactory;
+
+// Global switch of the frame instrumentation. While it is off a span costs one field read,
+// so the rendering code keeps its spans unconditionally. It starts on with -Dapp.profiling=true,
+// which is handy together with a flight recording of the frame events.
+public final class Profiler {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile boolean isEnabled = Boolean.getBoolean("app.profiling");
+
+    private Profiler() {
+    }
+
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        isEnabled = enabled;
+    }
+
+    // Start of a span, 0 while profiling is off
+    public static long begin() {
+        return isEnabled ? System.nanoTime() : 0;
+    }
+
+    // Bytes allocated by the calling thread so far, 0 while profiling is off
+    public static long getAllocatedBytes() {
+        return isEnabled ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+}
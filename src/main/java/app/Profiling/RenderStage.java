@@ -0,0 +1,22 @@
+package app.Profiling;
+
+// Timed steps of a frame, in the order they run
+public enum RenderStage {
+    CULL("Cull"),
+    TRANSFORM("Transform"),
+    VISIBILITY("Visibility"),
+    DRAW("Draw");
+
+    static final int COUNT = values().length;
+
+    private final String label;
+
+    RenderStage(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+}
@@ -0,0 +1,28 @@
+package app;
+
+// Closest polygon found by a ray query. The hit point is o + t * d, in barycentric
+// coordinates it is (1 - u - v) * P1 + u * P2 + v * P3 of the polygon.
+public final class RayHit {
+
+    int polygon = -1;
+    double t;
+    double u;
+    double v;
+
+    public int getPolygon() {
+        return polygon;
+    }
+
+    public double getT() {
+        return t;
+    }
+
+    public double getU() {
+        return u;
+    }
+
+    public double getV() {
+        return v;
+    }
+
+}
@@ -0,0 +1,282 @@
+package app;
+
+import app.AffineOperations.ModelTransform;
+import app.Rendering.FrameRequest;
+import app.Rendering.OffscreenRenderer;
+import app.Rendering.RenderMode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Headless entry point, renders a figure to PNG files without starting JavaFX.
+// Frames of a batch are spread over a fork-join pool, one renderer per worker thread.
+public final class RenderCommand {
+
+    private static final double LOADED_MESH_RADIUS = 150;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: RenderCommand [options]",
+            "  --figure NAME              one of PYRAMID, CUBE, OCTAHEDRON, ICOSAHEDRON, DODECAHEDRON,",
+            "                             SPHERE_WITH_POLES, SPHERE_WITHOUT_POLES or the name of a",
+            "                             generator such as TORUS (default PYRAMID)",
+            "  --resolution N             figure resolution (default depends on the figure)",
+            "  --mesh FILE                render an OBJ, STL or saved ." + MeshFile.EXTENSION + " file instead of a figure",
+            "  --projection NAME          parallel or perspective (default parallel)",
+            "  --roberts on|off           hide invisible polygons (default on)",
+            "  --mode NAME                wireframe, filled or painter (default wireframe)",
+            "  --views one|four           the projection alone, or perspective, front, top and side views",
+            "                             side by side (default one)",
+            "  --rotate-x, --rotate-y, --rotate-z DEGREES",
+            "  --scale FACTOR",
+            "  --move-x, --move-y PIXELS",
+            "  --width, --height PIXELS   image size (default 700x474)",
+            "  --frames N                 number of frames (default 1)",
+            "  --spin DEGREES             extra rotation around OY per frame (default 360 / frames)",
+            "  --threads N                worker threads (default all cores)",
+            "  --output DIR               directory for the images (default render)");
+
+    private MeshGenerator figure = Figure.PYRAMID;
+    private Integer resolution;
+    private Path meshFile;
+    private boolean isPerspectiveProjection = false;
+    private boolean isRobertsAlgorithmEnabled = true;
+    private boolean isMultiView = false;
+    private RenderMode mode = RenderMode.WIREFRAME;
+    private double rotateX;
+    private double rotateY;
+    private double rotateZ;
+    private double scale = 1;
+    private double moveX;
+    private double moveY;
+    private int width = 700;
+    private int height = 474;
+    private int frames = 1;
+    private Double spin;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path output = Path.of("render");
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        final var command = new RenderCommand();
+        try {
+            command.parse(args);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        try {
+            command.run();
+        }
+        catch (IOException | RuntimeException e) {
+            System.out.println("Whoops, something went wrong: " + e);
+            System.exit(1);
+        }
+    }
+
+    // Helpers
+
+    private Mesh generate() {
+        final var mesh = figure.getMesh(resolution == null ? figure.getDefaultResolution() : resolution);
+        return figure.isLocallyOrdered() ? mesh : MeshOptimizer.optimize(mesh);
+    }
+
+    private void parse(String[] args) {
+        for (var i = 0; i < args.length; i++) {
+            final var option = args[i];
+            if (option.equals("--help") || option.equals("-h"))
+                throw new IllegalArgumentException("Renders a figure to PNG files");
+            if (i + 1 == args.length)
+                throw new IllegalArgumentException("Missing value of " + option);
+
+            final var value = args[++i];
+            switch (option) {
+                case "--figure":
+                    figure = MeshGenerators.find(value);
+                    break;
+
+                case "--resolution":
+                    resolution = parseInt(option, value);
+                    break;
+
+                case "--mesh":
+                    meshFile = Path.of(value);
+                    break;
+
+                case "--projection":
+                    isPerspectiveProjection = parseChoice(option, value, "parallel", "perspective");
+                    break;
+
+                case "--roberts":
+                    isRobertsAlgorithmEnabled = parseChoice(option, value, "off", "on");
+                    break;
+
+                case "--views":
+                    isMultiView = parseChoice(option, value, "one", "four");
+                    break;
+
+                case "--mode":
+                    mode = RenderMode.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+
+                case "--rotate-x":
+                    rotateX = parseDouble(option, value);
+                    break;
+
+                case "--rotate-y":
+                    rotateY = parseDouble(option, value);
+                    break;
+
+                case "--rotate-z":
+                    rotateZ = parseDouble(option, value);
+                    break;
+
+                case "--scale":
+                    scale = parseDouble(option, value);
+                    break;
+
+                case "--move-x":
+                    moveX = parseDouble(option, value);
+                    break;
+
+                case "--move-y":
+                    moveY = parseDouble(option, value);
+                    break;
+
+                case "--width":
+                    width = parsePositiveInt(option, value);
+                    break;
+
+                case "--height":
+                    height = parsePositiveInt(option, value);
+                    break;
+
+                case "--frames":
+                    frames = parsePositiveInt(option, value);
+                    break;
+
+                case "--spin":
+                    spin = parseDouble(option, value);
+                    break;
+
+                case "--threads":
+                    threads = parsePositiveInt(option, value);
+                    break;
+
+                case "--output":
+                    output = Path.of(value);
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        final var mesh = meshFile != null
+                ? MeshImporter.load(meshFile).fitToRadius(LOADED_MESH_RADIUS)
+                : generate();
+        Files.createDirectories(output);
+
+        // Built once here instead of racing for it on every worker
+        mesh.getEdges();
+        mesh.getFacePlanes();
+
+        final var spinPerFrame = Math.toRadians(spin == null ? 360d / frames : spin);
+        final var name = meshFile != null
+                ? meshFile.getFileName().toString().replaceFirst("\\.[^.]*$", "")
+                : MeshGenerators.getFileName(figure);
+        final var renderers = ThreadLocal.withInitial(() -> new OffscreenRenderer(null));
+        final var transforms = ThreadLocal.withInitial(ModelTransform::new);
+
+        final var startTime = System.nanoTime();
+        final var pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, frames).parallel().forEach(frame -> {
+                final var transform = transforms.get();
+                transform.reset();
+                transform.scale(scale);
+                transform.oXRotation(Math.toRadians(rotateX));
+                transform.oYRotation(Math.toRadians(rotateY) + spinPerFrame * frame);
+                transform.oZRotation(Math.toRadians(rotateZ));
+                transform.move(moveX, moveY);
+
+                final var request = new FrameRequest(mesh, transform.getMatrix(), isPerspectiveProjection,
+                        isRobertsAlgorithmEnabled, width, height);
+                final var file = output.resolve(String.format(Locale.ROOT, "%s-%05d.png", name, frame));
+
+                try {
+                    if (isMultiView)
+                        renderers.get().renderViewsToPng(request, mode, file);
+                    else
+                        renderers.get().renderToPng(request, mode, file);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException)
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        final var seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf(Locale.ROOT, "Rendered %d frames of %s to %s in %.3f s (%.1f frames/s)%n",
+                frames, name, output, seconds, frames / seconds);
+    }
+
+    private static boolean parseChoice(String option, String value, String no, String yes) {
+        if (value.equalsIgnoreCase(yes))
+            return true;
+        if (value.equalsIgnoreCase(no))
+            return false;
+
+        throw new IllegalArgumentException(option + " must be " + no + " or " + yes + ": " + value);
+    }
+
+    private static int parsePositiveInt(String option, String value) {
+        final var result = parseInt(option, value);
+        if (result <= 0)
+            throw new IllegalArgumentException(option + " must be positive: " + value);
+
+        return result;
+    }
+
+    private static int parseInt(String option, String value) {
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " must be an integer: " + value);
+        }
+    }
+
+    private static double parseDouble(String option, String value) {
+        try {
+            return Double.parseDouble(value);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " must be a number: " + value);
+        }
+    }
+
+}
@@ -0,0 +1,16 @@
+package app.Rendering;
+
+import app.AffineOperations.Matrix4;
+import app.Mesh;
+
+// Picks the mesh of a shape to render under the model matrix of the frame. Selectors keep
+// state between frames, so once a selector goes into a FrameRequest only the render worker
+// calls it, nothing else may touch it while it is in use.
+public interface DetailSelector {
+
+    Mesh select(Matrix4 modelMatrix, boolean isPerspectiveProjection, double width, double height);
+
+    // Figure resolution of the last selected mesh, -1 when it has none
+    int getResolution();
+
+}
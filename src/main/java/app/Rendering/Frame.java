@@ -0,0 +1,178 @@
+package app.Rendering;
+
+import app.Mesh;
+import app.MeshEdges;
+import app.Profiling.FrameTimings;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+// Screen-space result of the geometry pipeline. Frames are recycled by the
+// FrameExchange, but a published frame is never written to while the UI holds it.
+// Nodes of all items share one buffer. Item polygons start on a 64 polygon boundary
+// of the visibility bitset, so every visibility word belongs to a single item.
+// Four-view frames come composed by the render worker: the pixels of the whole canvas and
+// the viewport of every view. Their nodes and visibility are not filled.
+public final class Frame {
+
+    private static final View[] VIEWS = View.values();
+    private static final int VIEWPORT_SIZE = 4;
+
+    Mesh[] meshes = new Mesh[1];
+    int itemsCount;
+    int[] nodesOffsets = new int[2];
+    int[] polygonsOffsets = new int[2];
+    double[] nodes = new double[0];
+    // Per item 3x3 matrices taking model space polygon normals to view space
+    double[] normalMatrices = new double[RenderPipeline.NORMAL_MATRIX_SIZE];
+    final VisibilityBitSet visiblePolygons = new VisibilityBitSet();
+    boolean isRobertsAlgorithmEnabled;
+    double width;
+    double height;
+    // Selector that picked the mesh of the single item and the resolution it chose, or null and -1
+    DetailSelector detailSelector;
+    int resolution = -1;
+    boolean isComposed;
+    int[] pixels = new int[0];
+    IntBuffer pixelsBuffer = IntBuffer.wrap(pixels);
+    final int[] viewports = new int[VIEWS.length * VIEWPORT_SIZE];
+    final FrameTimings timings = new FrameTimings();
+
+    public int getItemsCount() {
+        return itemsCount;
+    }
+
+    public Mesh getMesh(int item) {
+        return meshes[item];
+    }
+
+    // Packed screen x, y and depth z of the nodes of every item
+    public double[] getNodes() {
+        return nodes;
+    }
+
+    // Index of the first node of the item in getNodes(), counted in nodes
+    public int getNodesOffset(int item) {
+        return nodesOffsets[item];
+    }
+
+    // Polygons of all items are numbered together, starting at this offset for the item.
+    // The total is an upper bound of these numbers, gaps are never visible.
+    public int getPolygonsOffset(int item) {
+        return polygonsOffsets[item];
+    }
+
+    public int getPolygonsTotal() {
+        return polygonsOffsets[itemsCount];
+    }
+
+    public boolean isPolygonVisible(int item, int polygon) {
+        return !isRobertsAlgorithmEnabled || visiblePolygons.get(polygonsOffsets[item] + polygon);
+    }
+
+    public boolean isEdgeVisible(int item, int edge) {
+        if (!isRobertsAlgorithmEnabled)
+            return true;
+
+        final var edges = meshes[item].getEdges();
+        final var secondPolygon = edges.getSecondPolygon(edge);
+        return isPolygonVisible(item, edges.getFirstPolygon(edge))
+                || secondPolygon != MeshEdges.NO_POLYGON && isPolygonVisible(item, secondPolygon);
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public DetailSelector getDetailSelector() {
+        return detailSelector;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public boolean isComposed() {
+        return isComposed;
+    }
+
+    // ARGB pixels of a composed frame, row by row, the array may be longer than width * height
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getViewsCount() {
+        return isComposed ? VIEWS.length : 0;
+    }
+
+    public View getView(int index) {
+        return VIEWS[index];
+    }
+
+    public int getViewX(int index) {
+        return viewports[index * VIEWPORT_SIZE];
+    }
+
+    public int getViewY(int index) {
+        return viewports[index * VIEWPORT_SIZE + 1];
+    }
+
+    public int getViewWidth(int index) {
+        return viewports[index * VIEWPORT_SIZE + 2];
+    }
+
+    public int getViewHeight(int index) {
+        return viewports[index * VIEWPORT_SIZE + 3];
+    }
+
+    // Geometry stages of the frame, all zero while profiling is off
+    public FrameTimings getTimings() {
+        return timings;
+    }
+
+    void setPixelsCount(int count) {
+        if (pixels.length < count) {
+            pixels = new int[count];
+            pixelsBuffer = IntBuffer.wrap(pixels);
+        }
+    }
+
+    void setViewport(int index, int x, int y, int width, int height) {
+        viewports[index * VIEWPORT_SIZE] = x;
+        viewports[index * VIEWPORT_SIZE + 1] = y;
+        viewports[index * VIEWPORT_SIZE + 2] = width;
+        viewports[index * VIEWPORT_SIZE + 3] = height;
+    }
+
+    void setItems(Mesh[] meshes, int itemsCount) {
+        if (this.meshes.length < itemsCount) {
+            this.meshes = new Mesh[itemsCount];
+            nodesOffsets = new int[itemsCount + 1];
+            polygonsOffsets = new int[itemsCount + 1];
+        }
+
+        // Stale meshes would be kept alive otherwise
+        Arrays.fill(this.meshes, itemsCount, this.meshes.length, null);
+        this.itemsCount = itemsCount;
+
+        for (var item = 0; item < itemsCount; item++) {
+            final var mesh = meshes[item];
+            this.meshes[item] = mesh;
+            nodesOffsets[item + 1] = nodesOffsets[item] + mesh.getNodesCount();
+            polygonsOffsets[item + 1] = polygonsOffsets[item] + (mesh.getPolygonsCount() + 63 & ~63);
+        }
+
+        if (nodes.length < nodesOffsets[itemsCount] * Mesh.NODE_SIZE)
+            nodes = new double[nodesOffsets[itemsCount] * Mesh.NODE_SIZE];
+
+        if (normalMatrices.length < itemsCount * RenderPipeline.NORMAL_MATRIX_SIZE)
+            normalMatrices = new double[itemsCount * RenderPipeline.NORMAL_MATRIX_SIZE];
+
+        visiblePolygons.resize(polygonsOffsets[itemsCount]);
+    }
+
+}
@@ -0,0 +1,41 @@
+package app.Rendering;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lock-free triple buffer between one producer and one consumer. The producer always
+// has a back frame to write into, the consumer always gets the most recently published
+// frame, and frames published in between are dropped.
+final class FrameExchange {
+
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final Frame[] frames = { new Frame(), new Frame(), new Frame() };
+
+    // Index of the frame between the two threads, flagged when it has not been consumed yet
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    private int back = 0;
+    private int front = 2;
+
+    // Producer side
+
+    Frame getBackFrame() {
+        return frames[back];
+    }
+
+    void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    // Consumer side, null when nothing was published since the last call
+
+    Frame acquireLatest() {
+        if ((middle.get() & FRESH) == 0)
+            return null;
+
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return frames[front];
+    }
+
+}
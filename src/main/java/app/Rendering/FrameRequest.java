@@ -0,0 +1,105 @@
+package app.Rendering;
+
+import app.AffineOperations.Matrix4;
+import app.Mesh;
+
+import java.util.Arrays;
+
+// Immutable snapshot of everything the geometry pipeline needs to produce a frame.
+// A frame is made of items, every item is a mesh with its own model matrix.
+// A single item may leave its mesh to a DetailSelector, the render worker picks it then.
+// Requests with a views mode are composed by the render worker into the four views.
+public final class FrameRequest {
+
+    final Mesh[] meshes;
+    final double[] modelMatrices;
+    final int itemsCount;
+    final boolean isPerspectiveProjection;
+    final boolean isRobertsAlgorithmEnabled;
+    final double width;
+    final double height;
+    final DetailSelector detailSelector;
+    final RenderMode viewsMode;
+
+    public FrameRequest(Mesh mesh, Matrix4 modelMatrix, boolean isPerspectiveProjection,
+                        boolean isRobertsAlgorithmEnabled, double width, double height) {
+        this(mesh, null, modelMatrix, isPerspectiveProjection, isRobertsAlgorithmEnabled, width, height);
+    }
+
+    // The mesh is the one shown so far, the selector gets the model matrix on the render worker
+    public FrameRequest(Mesh mesh, DetailSelector detailSelector, Matrix4 modelMatrix, boolean isPerspectiveProjection,
+                        boolean isRobertsAlgorithmEnabled, double width, double height) {
+        this.meshes = new Mesh[] { mesh };
+        this.modelMatrices = new double[Matrix4.SIZE];
+        this.itemsCount = 1;
+        this.isPerspectiveProjection = isPerspectiveProjection;
+        this.isRobertsAlgorithmEnabled = isRobertsAlgorithmEnabled;
+        this.width = width;
+        this.height = height;
+        this.detailSelector = detailSelector;
+        this.viewsMode = null;
+
+        modelMatrix.copyTo(modelMatrices, 0);
+    }
+
+    // The first itemsCount meshes and packed model matrices (Matrix4.SIZE entries each) are copied
+    public FrameRequest(Mesh[] meshes, double[] modelMatrices, int itemsCount, boolean isPerspectiveProjection,
+                        boolean isRobertsAlgorithmEnabled, double width, double height) {
+        this.meshes = Arrays.copyOf(meshes, itemsCount);
+        this.modelMatrices = Arrays.copyOf(modelMatrices, itemsCount * Matrix4.SIZE);
+        this.itemsCount = itemsCount;
+        this.isPerspectiveProjection = isPerspectiveProjection;
+        this.isRobertsAlgorithmEnabled = isRobertsAlgorithmEnabled;
+        this.width = width;
+        this.height = height;
+        this.detailSelector = null;
+        this.viewsMode = null;
+    }
+
+    // Same items with other meshes, the arrays are shared as they are never written
+    private FrameRequest(FrameRequest request, Mesh[] meshes, DetailSelector detailSelector, RenderMode viewsMode) {
+        this.meshes = meshes;
+        this.modelMatrices = request.modelMatrices;
+        this.itemsCount = request.itemsCount;
+        this.isPerspectiveProjection = request.isPerspectiveProjection;
+        this.isRobertsAlgorithmEnabled = request.isRobertsAlgorithmEnabled;
+        this.width = request.width;
+        this.height = request.height;
+        this.detailSelector = detailSelector;
+        this.viewsMode = viewsMode;
+    }
+
+    public int getItemsCount() {
+        return itemsCount;
+    }
+
+    public Mesh getMesh(int item) {
+        return meshes[item];
+    }
+
+    public DetailSelector getDetailSelector() {
+        return detailSelector;
+    }
+
+    // The same request drawn in the four views in the given mode, see MultiViewRenderer
+    public FrameRequest withViews(RenderMode mode) {
+        return new FrameRequest(this, meshes, detailSelector, mode);
+    }
+
+    // Null for the single view
+    public RenderMode getViewsMode() {
+        return viewsMode;
+    }
+
+    // Must only be called on the thread that renders the request, the selector is confined to it.
+    // The model matrix is scratch space.
+    FrameRequest selectDetail(Matrix4 modelMatrix) {
+        if (detailSelector == null)
+            return this;
+
+        modelMatrix.set(modelMatrices, 0);
+        final var mesh = detailSelector.select(modelMatrix, isPerspectiveProjection, width, height);
+        return new FrameRequest(this, new Mesh[] { mesh }, null, viewsMode);
+    }
+
+}
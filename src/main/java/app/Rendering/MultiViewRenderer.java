@@ -0,0 +1,403 @@
+package app.Rendering;
+
+import app.AffineOperations.Matrix4;
+import app.Mesh;
+import app.Profiling.FrameTimings;
+import app.Profiling.Profiler;
+import app.Profiling.RenderStage;
+
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Every View of one frame request side by side, two views per row. The model matrices are
+// applied to the nodes once per frame, into a world space buffer shared by all the views,
+// and inverted once per frame as well. A view then only maps that buffer to its viewport:
+// the front, top and side views are orthographic along the world axes, so their mapping
+// is a swizzle and a scale of the world coordinates, only the perspective view needs a full
+// homogeneous pass. The Roberts test takes the view point of the view, fixed in world space,
+// to model space with the shared inverse, and the view rasterizes its viewport.
+// Views are fork-join tasks, each with its own frame, visibility engine and rasterizer,
+// and each copies its pixels into its own rectangle of the target.
+// A renderer keeps its buffers between frames and must be confined to one thread.
+public final class MultiViewRenderer {
+
+    public static final int SEPARATOR_COLOR = 0xFF404040;
+
+    private static final int COLUMNS = 2;
+    private static final int SEPARATOR_WIDTH = 1;
+
+    // Views are about half the size of the target, so are the figures in them
+    private static final double VIEW_SCALE = 1d / COLUMNS;
+
+    private final ForkJoinPool pool;
+    private final ViewTask[] tasks;
+    private final RootTask root;
+    private final Matrix4 modelMatrix = new Matrix4();
+    private final FrameTimings timings = new FrameTimings();
+
+    // Nodes of all items after their model matrices, packed like the nodes of a Frame,
+    // and the packed inverses of the model matrices, the identity for a singular one
+    private double[] worldNodes = new double[0];
+    private double[] inverseMatrices = new double[0];
+    private boolean[] isInvertible = new boolean[0];
+    private final Matrix4 inverse = new Matrix4();
+
+    // Read by the view tasks while a frame renders
+    private FrameRequest request;
+    private RenderMode mode;
+    private IntBuffer target;
+    private int targetWidth;
+
+    public MultiViewRenderer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    // A null pool renders the views one after another on the calling thread
+    public MultiViewRenderer(ForkJoinPool pool) {
+        this.pool = pool;
+
+        final var views = View.values();
+        tasks = new ViewTask[views.length];
+        for (var i = 0; i < views.length; i++)
+            tasks[i] = new ViewTask(views[i], pool);
+        root = new RootTask(tasks);
+    }
+
+    // Writes width * height ARGB pixels, row by row, into the target. The size of
+    // the request is not used, every view gets its own share of the target.
+    public void render(FrameRequest request, RenderMode mode, IntBuffer target, int width, int height) {
+        timings.reset();
+        layout(width, height);
+        drawSeparators(target, width, height);
+
+        var start = Profiler.begin();
+        transformToWorld(request);
+        timings.end(RenderStage.TRANSFORM, start);
+
+        this.request = request;
+        this.mode = mode;
+        this.target = target;
+        this.targetWidth = width;
+
+        try {
+            if (pool == null || pool.getParallelism() < 2) {
+                for (final var task : tasks)
+                    task.renderView();
+            }
+            else {
+                root.reinitialize();
+                pool.invoke(root);
+            }
+        }
+        finally {
+            // The request and the target must not outlive the frame
+            this.request = null;
+            this.target = null;
+        }
+
+        for (final var task : tasks)
+            for (final var stage : RenderStage.values())
+                timings.add(stage, task.frame.timings.getNanos(stage));
+    }
+
+    // Composes the views into the pixels of the frame at the size of the request, in its views
+    // mode. The frame gets the items, the viewports and the timings, but no geometry.
+    public void render(FrameRequest request, Frame frame) {
+        final var width = (int) request.width;
+        final var height = (int) request.height;
+        final var allocatedBytes = Profiler.getAllocatedBytes();
+
+        frame.setItems(request.meshes, request.itemsCount);
+        frame.isComposed = true;
+        frame.isRobertsAlgorithmEnabled = request.isRobertsAlgorithmEnabled;
+        frame.width = width;
+        frame.height = height;
+        frame.setPixelsCount(Math.max(0, width) * Math.max(0, height));
+
+        render(request, request.viewsMode, frame.pixelsBuffer, width, height);
+
+        for (var i = 0; i < tasks.length; i++)
+            frame.setViewport(i, tasks[i].x, tasks[i].y, tasks[i].width, tasks[i].height);
+        timings.copyTo(frame.timings);
+        frame.timings.addAllocatedBytesSince(allocatedBytes);
+    }
+
+    public int getViewsCount() {
+        return tasks.length;
+    }
+
+    public View getView(int index) {
+        return tasks[index].view;
+    }
+
+    // Viewport of the view in the last rendered target
+    public int getViewX(int index) {
+        return tasks[index].x;
+    }
+
+    public int getViewY(int index) {
+        return tasks[index].y;
+    }
+
+    public int getViewWidth(int index) {
+        return tasks[index].width;
+    }
+
+    public int getViewHeight(int index) {
+        return tasks[index].height;
+    }
+
+    // Stages of the last frame added up over the views, which may have run at the same time.
+    // The shared transform is counted once.
+    public FrameTimings getTimings() {
+        return timings;
+    }
+
+    // Helpers
+
+    private void layout(int width, int height) {
+        final var rows = (tasks.length + COLUMNS - 1) / COLUMNS;
+
+        for (var i = 0; i < tasks.length; i++) {
+            final var task = tasks[i];
+            final var column = i % COLUMNS;
+            final var row = i / COLUMNS;
+
+            task.x = column * (width + SEPARATOR_WIDTH) / COLUMNS;
+            task.y = row * (height + SEPARATOR_WIDTH) / rows;
+            task.width = Math.max(0, (column + 1) * (width + SEPARATOR_WIDTH) / COLUMNS - SEPARATOR_WIDTH - task.x);
+            task.height = Math.max(0, (row + 1) * (height + SEPARATOR_WIDTH) / rows - SEPARATOR_WIDTH - task.y);
+        }
+    }
+
+    // Views cover everything but the gaps between them
+    private void drawSeparators(IntBuffer target, int width, int height) {
+        final var rows = (tasks.length + COLUMNS - 1) / COLUMNS;
+
+        for (var column = 1; column < COLUMNS; column++) {
+            final var x = column * (width + SEPARATOR_WIDTH) / COLUMNS - SEPARATOR_WIDTH;
+            for (var y = 0; y < height; y++)
+                for (var i = Math.max(0, x); i < Math.min(width, x + SEPARATOR_WIDTH); i++)
+                    target.put(y * width + i, SEPARATOR_COLOR);
+        }
+
+        for (var row = 1; row < rows; row++) {
+            final var y = row * (height + SEPARATOR_WIDTH) / rows - SEPARATOR_WIDTH;
+            for (var j = Math.max(0, y); j < Math.min(height, y + SEPARATOR_WIDTH); j++)
+                for (var x = 0; x < width; x++)
+                    target.put(j * width + x, SEPARATOR_COLOR);
+        }
+    }
+
+    private void transformToWorld(FrameRequest request) {
+        var nodesCount = 0;
+        for (var item = 0; item < request.itemsCount; item++)
+            nodesCount += request.meshes[item].getNodesCount();
+
+        if (worldNodes.length < nodesCount * Mesh.NODE_SIZE)
+            worldNodes = new double[nodesCount * Mesh.NODE_SIZE];
+
+        if (isInvertible.length < request.itemsCount) {
+            isInvertible = new boolean[request.itemsCount];
+            inverseMatrices = new double[request.itemsCount * Matrix4.SIZE];
+        }
+
+        var offset = 0;
+        for (var item = 0; item < request.itemsCount; item++) {
+            final var mesh = request.meshes[item];
+            modelMatrix.set(request.modelMatrices, item * Matrix4.SIZE);
+            modelMatrix.transform(mesh, worldNodes, offset);
+            offset += mesh.getNodesCount() * Mesh.NODE_SIZE;
+
+            isInvertible[item] = Matrix4.invert(modelMatrix, inverse);
+            if (!isInvertible[item])
+                inverse.setIdentity();
+            inverse.copyTo(inverseMatrices, item * Matrix4.SIZE);
+        }
+    }
+
+    private final class ViewTask extends RecursiveAction {
+
+        final View view;
+        final Frame frame = new Frame();
+        final VisibilityEngine visibilityEngine;
+        final Rasterizer rasterizer;
+        final Matrix4 viewMatrix = new Matrix4();
+        final Matrix4 viewInverse = new Matrix4();
+        final Matrix4 projection = new Matrix4();
+        final Matrix4 modelInverse = new Matrix4();
+        final Matrix4 modelViewInverse = new Matrix4();
+
+        // World axis and scale behind every screen axis of an orthographic view
+        final int[] axes = new int[Mesh.NODE_SIZE];
+        final double[] factors = new double[Mesh.NODE_SIZE];
+
+        // Roberts view point in world space, homogeneous
+        final double[] viewPoint = new double[4];
+
+        int x;
+        int y;
+        int width;
+        int height;
+        int[] pixels = new int[0];
+        IntBuffer buffer = IntBuffer.wrap(pixels);
+
+        ViewTask(View view, ForkJoinPool pool) {
+            this.view = view;
+            this.visibilityEngine = new VisibilityEngine(pool, VisibilityEngine.DEFAULT_PARALLEL_THRESHOLD);
+            this.rasterizer = new Rasterizer(pool);
+
+            final var camera = view.getMatrix(new Matrix4());
+            if (view.isPerspective())
+                camera.multiply(new Matrix4().setPerspective());
+
+            view.getMatrix(viewMatrix);
+            Matrix4.invert(viewMatrix, viewInverse);
+            projection.set(camera).multiply(new Matrix4().setScale(VIEW_SCALE));
+
+            // The rotations of the views are quarter turns, their entries are 0 or 1 up to rounding.
+            // The scale is in the homogeneous coordinate.
+            for (var column = 0; column < Mesh.NODE_SIZE; column++) {
+                var axis = 0;
+                for (var row = 1; row < Mesh.NODE_SIZE; row++)
+                    if (Math.abs(projection.get(row, column)) > Math.abs(projection.get(axis, column)))
+                        axis = row;
+
+                axes[column] = axis;
+                factors[column] = Math.rint(projection.get(axis, column)) * VIEW_SCALE;
+            }
+
+            // (0, 0, VIEW_POINT_Z, 1) times the inverse of the camera, as in VisibilityEngine
+            final var inverse = new Matrix4();
+            Matrix4.invert(camera, inverse);
+            for (var column = 0; column < viewPoint.length; column++)
+                viewPoint[column] = VisibilityEngine.VIEW_POINT_Z * inverse.get(2, column) + inverse.get(3, column);
+        }
+
+        @Override
+        protected void compute() {
+            renderView();
+        }
+
+        void renderView() {
+            frame.setItems(request.meshes, request.itemsCount);
+            frame.isRobertsAlgorithmEnabled = request.isRobertsAlgorithmEnabled;
+            frame.width = width;
+            frame.height = height;
+            frame.timings.reset();
+
+            if (width <= 0 || height <= 0)
+                return;
+
+            for (var item = 0; item < request.itemsCount; item++)
+                projectItem(item);
+
+            if (pixels.length < width * height) {
+                pixels = new int[width * height];
+                buffer = IntBuffer.wrap(pixels);
+            }
+
+            final var start = Profiler.begin();
+            if (mode == RenderMode.FILLED)
+                rasterizer.rasterize(frame, buffer, width, height);
+            else if (mode == RenderMode.PAINTER)
+                rasterizer.paint(frame, buffer, width, height);
+            else
+                rasterizer.drawWireframe(frame, buffer, width, height);
+
+            // Views write disjoint rows of the target, each through its own cursor
+            final var rows = target.duplicate();
+            for (var row = 0; row < height; row++) {
+                rows.position((y + row) * targetWidth + x);
+                rows.put(pixels, row * width, width);
+            }
+            frame.timings.end(RenderStage.DRAW, start);
+        }
+
+        // The world nodes only go through the camera and the projection of the view.
+        // The normals and the Roberts test start from the shared inverse of the model matrix.
+        private void projectItem(int item) {
+            final var mesh = request.meshes[item];
+            final var nodesOffset = frame.nodesOffsets[item] * Mesh.NODE_SIZE;
+
+            var start = Profiler.begin();
+            if (view.isPerspective())
+                projection.transform(worldNodes, nodesOffset, mesh.getNodesCount(), frame.nodes, nodesOffset, width / 2d, height / 2d);
+            else
+                projectOrthographic(nodesOffset, mesh.getNodesCount());
+
+            modelInverse.set(inverseMatrices, item * Matrix4.SIZE);
+            if (isInvertible[item])
+                Matrix4.multiply(viewInverse, modelInverse, modelViewInverse);
+            else
+                modelViewInverse.setIdentity();
+            RenderPipeline.setNormalMatrixOfInverse(modelViewInverse, frame.normalMatrices, item * RenderPipeline.NORMAL_MATRIX_SIZE);
+            frame.timings.end(RenderStage.TRANSFORM, start);
+
+            if (request.isRobertsAlgorithmEnabled) {
+                start = Profiler.begin();
+                if (isInvertible[item])
+                    calculateVisibility(mesh, item);
+                else
+                    visibilityEngine.calculate(mesh, 0, 0, 0, 0, frame.visiblePolygons, frame.polygonsOffsets[item]);
+                frame.timings.end(RenderStage.VISIBILITY, start);
+            }
+        }
+
+        private void projectOrthographic(int offset, int count) {
+            final var nodes = frame.nodes;
+            final var x = axes[0];
+            final var y = axes[1];
+            final var z = axes[2];
+            final var fx = factors[0];
+            final var fy = factors[1];
+            final var fz = factors[2];
+            final var xOffset = width / 2d;
+            final var yOffset = height / 2d;
+
+            for (var node = 0; node < count; node++) {
+                final var i = offset + node * Mesh.NODE_SIZE;
+                nodes[i] = worldNodes[i + x] * fx + xOffset;
+                nodes[i + 1] = worldNodes[i + y] * fy + yOffset;
+                nodes[i + 2] = worldNodes[i + z] * fz;
+            }
+        }
+
+        // The world view point times the inverse of the model matrix, kept with a positive w
+        private void calculateVisibility(Mesh mesh, int item) {
+            final var vx = viewPoint[0];
+            final var vy = viewPoint[1];
+            final var vz = viewPoint[2];
+            final var vw = viewPoint[3];
+            final var w = vx * modelInverse.get(0, 3) + vy * modelInverse.get(1, 3) + vz * modelInverse.get(2, 3) + vw * modelInverse.get(3, 3);
+            final var sign = w < 0 ? -1 : 1;
+
+            visibilityEngine.calculate(mesh,
+                    sign * (vx * modelInverse.get(0, 0) + vy * modelInverse.get(1, 0) + vz * modelInverse.get(2, 0) + vw * modelInverse.get(3, 0)),
+                    sign * (vx * modelInverse.get(0, 1) + vy * modelInverse.get(1, 1) + vz * modelInverse.get(2, 1) + vw * modelInverse.get(3, 1)),
+                    sign * (vx * modelInverse.get(0, 2) + vy * modelInverse.get(1, 2) + vz * modelInverse.get(2, 2) + vw * modelInverse.get(3, 2)),
+                    sign * w, frame.visiblePolygons, frame.polygonsOffsets[item]);
+        }
+
+    }
+
+    private static final class RootTask extends RecursiveAction {
+
+        private final ViewTask[] tasks;
+
+        RootTask(ViewTask[] tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            for (final var task : tasks)
+                task.reinitialize();
+            ForkJoinTask.invokeAll(tasks);
+        }
+
+    }
+
+}
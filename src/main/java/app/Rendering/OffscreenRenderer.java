@@ -0,0 +1,87 @@
+package app.Rendering;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+// Renders frame requests into an in-memory ARGB image without JavaFX or a display.
+// The image and all scratch buffers are reused, so a renderer must be confined to one thread.
+public final class OffscreenRenderer {
+
+    private final RenderPipeline pipeline;
+    private final Rasterizer rasterizer;
+    private final Frame frame = new Frame();
+    private final ForkJoinPool pool;
+    private MultiViewRenderer multiViewRenderer;
+
+    private BufferedImage image;
+    private IntBuffer pixels;
+
+    public OffscreenRenderer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    // A null pool renders every frame on the calling thread, which is the better fit
+    // when many renderers already run side by side
+    public OffscreenRenderer(ForkJoinPool pool) {
+        this.pool = pool;
+        this.pipeline = new RenderPipeline(new VisibilityEngine(pool, VisibilityEngine.DEFAULT_PARALLEL_THRESHOLD));
+        this.rasterizer = new Rasterizer(pool);
+    }
+
+    public BufferedImage render(FrameRequest request, RenderMode mode) {
+        prepareImage(request);
+        pipeline.render(request, frame);
+
+        final var width = image.getWidth();
+        final var height = image.getHeight();
+
+        if (mode == RenderMode.FILLED)
+            rasterizer.rasterize(frame, pixels, width, height);
+        else if (mode == RenderMode.PAINTER)
+            rasterizer.paint(frame, pixels, width, height);
+        else
+            rasterizer.drawWireframe(frame, pixels, width, height);
+
+        return image;
+    }
+
+    // Every View of the request in its own part of the image
+    public BufferedImage renderViews(FrameRequest request, RenderMode mode) {
+        prepareImage(request);
+        if (multiViewRenderer == null)
+            multiViewRenderer = new MultiViewRenderer(pool);
+
+        multiViewRenderer.render(request, mode, pixels, image.getWidth(), image.getHeight());
+        return image;
+    }
+
+    public void renderToPng(FrameRequest request, RenderMode mode, Path file) throws IOException {
+        ImageIO.write(render(request, mode), "png", file.toFile());
+    }
+
+    public void renderViewsToPng(FrameRequest request, RenderMode mode, Path file) throws IOException {
+        ImageIO.write(renderViews(request, mode), "png", file.toFile());
+    }
+
+    // Helpers
+
+    private void prepareImage(FrameRequest request) {
+        final var width = (int) request.width;
+        final var height = (int) request.height;
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Image size must be positive: " + width + "x" + height);
+
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+            // Rasterize straight into the image raster instead of copying pixel by pixel
+            pixels = IntBuffer.wrap(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+        }
+    }
+
+}
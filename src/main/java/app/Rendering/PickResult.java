@@ -0,0 +1,33 @@
+package app.Rendering;
+
+// Polygon under a point of the canvas. The hit point is (1 - u - v) * P1 + u * P2 + v * P3
+// of the polygon, depth is its view space z, larger values are closer to the viewer.
+public final class PickResult {
+
+    int item = -1;
+    int polygon = -1;
+    double u;
+    double v;
+    double depth;
+
+    public int getItem() {
+        return item;
+    }
+
+    public int getPolygon() {
+        return polygon;
+    }
+
+    public double getU() {
+        return u;
+    }
+
+    public double getV() {
+        return v;
+    }
+
+    public double getDepth() {
+        return depth;
+    }
+
+}
@@ -0,0 +1,79 @@
+package app.Rendering;
+
+import app.AffineOperations.Matrix4;
+import app.RayHit;
+
+// Casts the ray under a canvas point through the projection of a frame request and finds
+// the closest polygon it hits. The ray is brought to the model space of every item,
+// where it is tested against the bounding volume hierarchy of the item mesh, built on first use.
+// A picker reuses its scratch state and must be confined to one thread.
+public final class Picker {
+
+    private final Matrix4 modelMatrix = new Matrix4();
+    private final Matrix4 inverse = new Matrix4();
+    private final double[] viewRay = new double[6];
+    private final double[] modelRay = new double[6];
+    private final RayHit hit = new RayHit();
+
+    // x and y are canvas coordinates, as in the nodes of the frame made for the request
+    public boolean pick(FrameRequest request, double x, double y, PickResult result) {
+        final var px = x - request.width / 2;
+        final var py = y - request.height / 2;
+
+        // The parallel projection drops z, so the ray runs along it through the whole scene.
+        // The perspective one starts at the eye and passes the projection plane at the point.
+        final double tMin;
+        if (request.isPerspectiveProjection) {
+            setRay(viewRay, 0, 0, Matrix4.PERSPECTIVE_DISTANCE, px, py, -Matrix4.PERSPECTIVE_DISTANCE);
+            tMin = 0;
+        }
+        else {
+            setRay(viewRay, px, py, 0, 0, 0, -1);
+            tMin = Double.NEGATIVE_INFINITY;
+        }
+
+        // Model matrices are affine, so the ray parameter is the same in both spaces
+        // and the closest hits of different items compare directly
+        var closest = Double.POSITIVE_INFINITY;
+        var closestItem = -1;
+        for (var item = 0; item < request.itemsCount; item++) {
+            modelMatrix.set(request.modelMatrices, item * Matrix4.SIZE);
+            if (!Matrix4.invert(modelMatrix, inverse))
+                continue;
+
+            inverse.transform(viewRay[0], viewRay[1], viewRay[2], modelRay, 0);
+            inverse.transform(viewRay[0] + viewRay[3], viewRay[1] + viewRay[4], viewRay[2] + viewRay[5], modelRay, 3);
+
+            final var mesh = request.meshes[item];
+            final var isHit = mesh.getBvh().intersect(modelRay[0], modelRay[1], modelRay[2],
+                    modelRay[3] - modelRay[0], modelRay[4] - modelRay[1], modelRay[5] - modelRay[2], tMin, closest, hit);
+
+            if (isHit) {
+                closest = hit.getT();
+                closestItem = item;
+                result.polygon = hit.getPolygon();
+                result.u = hit.getU();
+                result.v = hit.getV();
+            }
+        }
+
+        if (closestItem < 0)
+            return false;
+
+        result.item = closestItem;
+        result.depth = viewRay[2] + closest * viewRay[5];
+        return true;
+    }
+
+    // Helpers
+
+    private static void setRay(double[] ray, double ox, double oy, double oz, double dx, double dy, double dz) {
+        ray[0] = ox;
+        ray[1] = oy;
+        ray[2] = oz;
+        ray[3] = dx;
+        ray[4] = dy;
+        ray[5] = dz;
+    }
+
+}
@@ -0,0 +1,205 @@
+package app.Rendering;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Stable least significant digit radix sort of int keys, compared as unsigned, each
+// carrying an int value. Every pass sorts on one 8 bit digit: the input is cut into
+// chunks, every chunk counts its digits, and the counts give every chunk its own
+// output range per digit, so the chunks scatter side by side without breaking
+// stability. Passes where all keys share the digit are skipped.
+// Buffers and tasks are kept between calls, a sorter must be confined to one thread.
+public final class RadixSorter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+
+    private static final int DIGIT_BITS = 8;
+    private static final int RADIX = 1 << DIGIT_BITS;
+    private static final int PASSES = Integer.SIZE / DIGIT_BITS;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    private int[] keysBuffer = new int[0];
+    private int[] valuesBuffer = new int[0];
+    // Digit counts of every chunk, turned into its write cursors before scattering
+    private int[] counts = new int[RADIX];
+    private ChunkTask[] tasks = new ChunkTask[0];
+    private final PassTask passTask = new PassTask();
+
+    private int[] sourceKeys;
+    private int[] sourceValues;
+    private int[] destinationKeys;
+    private int[] destinationValues;
+    private int count;
+    private int shift;
+
+    public RadixSorter() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    // A null pool keeps all the work on the calling thread
+    public RadixSorter(ForkJoinPool pool, int chunkSize) {
+        this.pool = pool;
+        this.chunkSize = Math.max(RADIX, chunkSize);
+    }
+
+    // Sorts the first count keys in ascending unsigned order, moving values along
+    public void sort(int[] keys, int[] values, int count) {
+        if (keysBuffer.length < count) {
+            keysBuffer = new int[count];
+            valuesBuffer = new int[count];
+        }
+
+        final var chunksCount = Math.max(1, (count + chunkSize - 1) / chunkSize);
+        final var isParallel = chunksCount > 1 && pool != null && pool.getParallelism() > 1;
+        if (counts.length < chunksCount * RADIX)
+            counts = new int[chunksCount * RADIX];
+        if (isParallel)
+            prepareTasks(chunksCount);
+
+        this.count = count;
+        sourceKeys = keys;
+        sourceValues = values;
+        destinationKeys = keysBuffer;
+        destinationValues = valuesBuffer;
+
+        for (var pass = 0; pass < PASSES; pass++) {
+            shift = pass * DIGIT_BITS;
+            run(isParallel, chunksCount, false);
+
+            if (!toCursors(chunksCount))
+                continue;
+
+            run(isParallel, chunksCount, true);
+
+            final var keysSwap = sourceKeys;
+            final var valuesSwap = sourceValues;
+            sourceKeys = destinationKeys;
+            sourceValues = destinationValues;
+            destinationKeys = keysSwap;
+            destinationValues = valuesSwap;
+        }
+
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, count);
+            System.arraycopy(sourceValues, 0, values, 0, count);
+        }
+
+        // Do not keep the caller's arrays alive
+        sourceKeys = sourceValues = destinationKeys = destinationValues = null;
+    }
+
+    // Helpers
+
+    private void run(boolean isParallel, int chunksCount, boolean isScatter) {
+        if (!isParallel) {
+            for (var chunk = 0; chunk < chunksCount; chunk++)
+                runChunk(chunk, isScatter);
+            return;
+        }
+
+        for (var chunk = 0; chunk < chunksCount; chunk++)
+            tasks[chunk].isScatter = isScatter;
+
+        passTask.chunksCount = chunksCount;
+        passTask.reinitialize();
+        pool.invoke(passTask);
+    }
+
+    private void runChunk(int chunk, boolean isScatter) {
+        final var from = chunk * chunkSize;
+        final var to = Math.min(from + chunkSize, count);
+        final var countsOffset = chunk * RADIX;
+
+        if (!isScatter) {
+            for (var digit = 0; digit < RADIX; digit++)
+                counts[countsOffset + digit] = 0;
+
+            for (var i = from; i < to; i++)
+                counts[countsOffset + (sourceKeys[i] >>> shift & RADIX - 1)]++;
+            return;
+        }
+
+        for (var i = from; i < to; i++) {
+            final var key = sourceKeys[i];
+            final var position = counts[countsOffset + (key >>> shift & RADIX - 1)]++;
+            destinationKeys[position] = key;
+            destinationValues[position] = sourceValues[i];
+        }
+    }
+
+    // Digit by digit, then chunk by chunk, every count becomes the start of the chunk's
+    // range for that digit. False when all keys share one digit and the pass is a no-op.
+    private boolean toCursors(int chunksCount) {
+        if (count == 0)
+            return false;
+
+        final var firstDigit = sourceKeys[0] >>> shift & RADIX - 1;
+        var firstDigitCount = 0;
+        for (var chunk = 0; chunk < chunksCount; chunk++)
+            firstDigitCount += counts[chunk * RADIX + firstDigit];
+        if (firstDigitCount == count)
+            return false;
+
+        var position = 0;
+        for (var digit = 0; digit < RADIX; digit++)
+            for (var chunk = 0; chunk < chunksCount; chunk++) {
+                final var index = chunk * RADIX + digit;
+                final var digitCount = counts[index];
+                counts[index] = position;
+                position += digitCount;
+            }
+
+        return true;
+    }
+
+    // Tasks only grow, the count of chunks follows the count of keys from call to call
+    private void prepareTasks(int chunksCount) {
+        if (tasks.length >= chunksCount)
+            return;
+
+        final var grown = Arrays.copyOf(tasks, chunksCount);
+        for (var chunk = tasks.length; chunk < chunksCount; chunk++)
+            grown[chunk] = new ChunkTask(chunk);
+        tasks = grown;
+    }
+
+    private final class ChunkTask extends RecursiveAction {
+
+        private final int chunk;
+        boolean isScatter;
+
+        ChunkTask(int chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            runChunk(chunk, isScatter);
+        }
+
+    }
+
+    // Forks the tasks of the first chunksCount chunks, the last one runs on the calling thread
+    private final class PassTask extends RecursiveAction {
+
+        int chunksCount;
+
+        @Override
+        protected void compute() {
+            for (var chunk = 0; chunk < chunksCount; chunk++)
+                tasks[chunk].reinitialize();
+
+            for (var chunk = 0; chunk < chunksCount - 1; chunk++)
+                tasks[chunk].fork();
+            tasks[chunksCount - 1].invoke();
+
+            for (var chunk = chunksCount - 2; chunk >= 0; chunk--)
+                tasks[chunk].join();
+        }
+
+    }
+
+}
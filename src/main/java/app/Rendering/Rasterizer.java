@@ -0,0 +1,486 @@
+package app.Rendering;
+
+import app.FacePlanes;
+import app.Mesh;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Flat-shaded software rasterizer with hidden surface removal by depth buffer,
+// or by the painter's algorithm: polygons sorted on their depth, filled back to front.
+// Polygons are binned into square screen tiles first, then every tile is cleared
+// and filled independently on the fork-join pool with its own slice of the depth buffer.
+// Tile tasks are kept between frames, one per tile, and reinitialized for every frame.
+// Wireframes are drawn with plain clipped line stepping for the headless renderer.
+// A rasterizer keeps its buffers between frames and must not be shared between threads.
+public final class Rasterizer {
+
+    public static final int TILE_SIZE = 64;
+    public static final int BACKGROUND_COLOR = 0xFF000000;
+    public static final int WIREFRAME_COLOR = 0xFF008000;
+
+    private static final double AMBIENT_LIGHT = 0.15;
+    private static final long EMPTY_BOUNDS = -1;
+
+    private final ForkJoinPool pool;
+    private final RadixSorter sorter;
+    private final RootTask root = new RootTask();
+    private TileTask[] tileTasks = new TileTask[0];
+
+    private int tilesX;
+    private int tilesY;
+    private int[] tileOffsets = new int[1];
+    private int[] tilePolygons = new int[0];
+    private float[] depth = new float[0];
+
+    // Polygons to draw as frame-wide numbers, with their tile ranges
+    private int polygonsCount;
+    private int[] polygons = new int[0];
+    private long[] polygonBounds = new long[0];
+    // Painter only, indices into the polygons above sorted back to front
+    private int[] depthKeys = new int[0];
+    private int[] drawingOrder = new int[0];
+
+    // Read by the tile tasks while a frame is filled
+    private Frame frame;
+    private IntBuffer pixels;
+    private int width;
+    private int height;
+    private boolean isPainter;
+
+    public Rasterizer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    // A null pool keeps all the work on the calling thread
+    public Rasterizer(ForkJoinPool pool) {
+        this.pool = pool;
+        this.sorter = new RadixSorter(pool, RadixSorter.DEFAULT_CHUNK_SIZE);
+    }
+
+    // Writes width * height ARGB pixels, row by row, into the buffer
+    public void rasterize(Frame frame, IntBuffer pixels, int width, int height) {
+        fill(frame, pixels, width, height, false);
+    }
+
+    // Same as rasterize, but without a depth buffer: polygons are filled back to front
+    // in the order of the depth of their middle points
+    public void paint(Frame frame, IntBuffer pixels, int width, int height) {
+        fill(frame, pixels, width, height, true);
+    }
+
+    // Writes width * height ARGB pixels with every visible edge drawn once
+    public void drawWireframe(Frame frame, IntBuffer pixels, int width, int height) {
+        for (var i = 0; i < width * height; i++)
+            pixels.put(i, BACKGROUND_COLOR);
+
+        final var nodes = frame.getNodes();
+        for (var item = 0; item < frame.getItemsCount(); item++) {
+            final var edges = frame.getMesh(item).getEdges();
+            final var nodesOffset = frame.getNodesOffset(item);
+
+            for (var i = 0; i < edges.getEdgesCount(); i++) {
+                if (!frame.isEdgeVisible(item, i))
+                    continue;
+
+                final var from = (nodesOffset + edges.getFrom(i)) * Mesh.NODE_SIZE;
+                final var to = (nodesOffset + edges.getTo(i)) * Mesh.NODE_SIZE;
+                drawLine(pixels, width, height, nodes[from], nodes[from + 1], nodes[to], nodes[to + 1]);
+            }
+        }
+    }
+
+    // Helpers
+
+    private void fill(Frame frame, IntBuffer pixels, int width, int height, boolean isPainter) {
+        tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        final var tilesCount = tilesX * tilesY;
+        if (!isPainter && depth.length < tilesCount * TILE_SIZE * TILE_SIZE)
+            depth = new float[tilesCount * TILE_SIZE * TILE_SIZE];
+
+        collectPolygons(frame, width, height, isPainter);
+        if (isPainter)
+            sorter.sort(depthKeys, drawingOrder, polygonsCount);
+
+        binPolygons(isPainter);
+
+        this.frame = frame;
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.isPainter = isPainter;
+
+        try {
+            if (tilesCount == 1 || pool == null || pool.getParallelism() < 2) {
+                for (var tile = 0; tile < tilesCount; tile++)
+                    rasterizeTile(tile);
+            }
+            else {
+                if (tileTasks.length < tilesCount) {
+                    final var tasks = Arrays.copyOf(tileTasks, tilesCount);
+                    for (var tile = tileTasks.length; tile < tilesCount; tile++)
+                        tasks[tile] = new TileTask(tile);
+                    tileTasks = tasks;
+                }
+
+                root.tilesCount = tilesCount;
+                root.reinitialize();
+                pool.invoke(root);
+            }
+        }
+        finally {
+            // The frame and the pixels must not outlive the frame
+            this.frame = null;
+            this.pixels = null;
+        }
+    }
+
+    // The segment is clipped to the viewport first (Liang-Barsky), then stepped
+    // one pixel at a time along its major axis
+    private static void drawLine(IntBuffer pixels, int width, int height, double x1, double y1, double x2, double y2) {
+        final var dx = x2 - x1;
+        final var dy = y2 - y1;
+        final var maxX = width - 0.5;
+        final var maxY = height - 0.5;
+
+        var t0 = 0d;
+        var t1 = 1d;
+
+        if (dx != 0) {
+            final var left = -x1 / dx;
+            final var right = (maxX - x1) / dx;
+            t0 = Math.max(t0, Math.min(left, right));
+            t1 = Math.min(t1, Math.max(left, right));
+        }
+        else if (x1 < 0 || x1 > maxX)
+            return;
+
+        if (dy != 0) {
+            final var top = -y1 / dy;
+            final var bottom = (maxY - y1) / dy;
+            t0 = Math.max(t0, Math.min(top, bottom));
+            t1 = Math.min(t1, Math.max(top, bottom));
+        }
+        else if (y1 < 0 || y1 > maxY)
+            return;
+
+        // Also rejects NaN coordinates
+        if (!(t0 <= t1))
+            return;
+
+        final var fromX = x1 + t0 * dx;
+        final var fromY = y1 + t0 * dy;
+        final var steps = (int) Math.ceil(Math.max(Math.abs(dx), Math.abs(dy)) * (t1 - t0));
+        final var stepX = steps == 0 ? 0 : dx * (t1 - t0) / steps;
+        final var stepY = steps == 0 ? 0 : dy * (t1 - t0) / steps;
+
+        for (var i = 0; i <= steps; i++) {
+            final var x = (int) Math.round(fromX + stepX * i);
+            final var y = (int) Math.round(fromY + stepY * i);
+            if (x >= 0 && x < width && y >= 0 && y < height)
+                pixels.put(y * width + x, WIREFRAME_COLOR);
+        }
+    }
+
+    // Visible polygons that touch the viewport, in ascending frame-wide numbers
+    // (item polygons offset + polygon). The painter keys them on their depth too.
+    private void collectPolygons(Frame frame, int width, int height, boolean isPainter) {
+        final var nodes = frame.getNodes();
+        final var total = frame.getPolygonsTotal();
+
+        if (polygons.length < total) {
+            polygons = new int[total];
+            polygonBounds = new long[total];
+        }
+        if (isPainter && depthKeys.length < total) {
+            depthKeys = new int[total];
+            drawingOrder = new int[total];
+        }
+
+        var count = 0;
+        for (var item = 0; item < frame.getItemsCount(); item++) {
+            final var mesh = frame.getMesh(item);
+            final var nodesOffset = frame.getNodesOffset(item);
+            final var polygonsOffset = frame.getPolygonsOffset(item);
+
+            for (var polygon = 0; polygon < mesh.getPolygonsCount(); polygon++) {
+                if (!frame.isPolygonVisible(item, polygon))
+                    continue;
+
+                final var bounds = tileBounds(mesh, nodes, nodesOffset, polygon, width, height);
+                if (bounds == EMPTY_BOUNDS)
+                    continue;
+
+                polygons[count] = polygonsOffset + polygon;
+                polygonBounds[count] = bounds;
+                if (isPainter) {
+                    depthKeys[count] = depthKey(mesh, nodes, nodesOffset, polygon);
+                    drawingOrder[count] = count;
+                }
+                count++;
+            }
+        }
+
+        polygonsCount = count;
+    }
+
+    // Tiles list frame-wide polygon numbers in drawing order: ascending for the depth
+    // buffer, back to front for the painter
+    private void binPolygons(boolean isPainter) {
+        final var tilesCount = tilesX * tilesY;
+
+        if (tileOffsets.length < tilesCount + 1)
+            tileOffsets = new int[tilesCount + 1];
+        Arrays.fill(tileOffsets, 0, tilesCount + 1, 0);
+
+        // Counting pass, tileOffsets[tile + 1] collects the polygons of each tile
+        for (var i = 0; i < polygonsCount; i++) {
+            final var bounds = polygonBounds[i];
+
+            for (var ty = minTileY(bounds); ty <= maxTileY(bounds); ty++)
+                for (var tx = minTileX(bounds); tx <= maxTileX(bounds); tx++)
+                    tileOffsets[ty * tilesX + tx + 1]++;
+        }
+
+        for (var tile = 0; tile < tilesCount; tile++)
+            tileOffsets[tile + 1] += tileOffsets[tile];
+
+        if (tilePolygons.length < tileOffsets[tilesCount])
+            tilePolygons = new int[tileOffsets[tilesCount]];
+
+        // Filling pass, tileOffsets[tile] is used as the write cursor and ends up
+        // at the start of the next tile, shifted back afterwards
+        for (var i = 0; i < polygonsCount; i++) {
+            final var index = isPainter ? drawingOrder[i] : i;
+            final var bounds = polygonBounds[index];
+
+            for (var ty = minTileY(bounds); ty <= maxTileY(bounds); ty++)
+                for (var tx = minTileX(bounds); tx <= maxTileX(bounds); tx++)
+                    tilePolygons[tileOffsets[ty * tilesX + tx]++] = polygons[index];
+        }
+
+        for (var tile = tilesCount; tile > 0; tile--)
+            tileOffsets[tile] = tileOffsets[tile - 1];
+        tileOffsets[0] = 0;
+    }
+
+    // Sum of the node depths, larger is closer. Flipping the float bits makes their
+    // unsigned order the numeric one, so far polygons sort first.
+    private static int depthKey(Mesh mesh, double[] nodes, int nodesOffset, int polygon) {
+        final var z = nodes[(nodesOffset + mesh.getP1(polygon)) * Mesh.NODE_SIZE + 2]
+                + nodes[(nodesOffset + mesh.getP2(polygon)) * Mesh.NODE_SIZE + 2]
+                + nodes[(nodesOffset + mesh.getP3(polygon)) * Mesh.NODE_SIZE + 2];
+
+        final var bits = Float.floatToIntBits((float) z);
+        return bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE;
+    }
+
+    // Item of a frame-wide polygon number, by binary search over the item offsets
+    private static int findItem(Frame frame, int polygon) {
+        var low = 0;
+        var high = frame.getItemsCount() - 1;
+
+        while (low < high) {
+            final var middle = (low + high + 1) >>> 1;
+            if (frame.getPolygonsOffset(middle) <= polygon)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+
+        return low;
+    }
+
+    // Tile ranges are packed into one long, 16 bits per bound
+    private long tileBounds(Mesh mesh, double[] nodes, int nodesOffset, int polygon, int width, int height) {
+        final var p1 = (nodesOffset + mesh.getP1(polygon)) * Mesh.NODE_SIZE;
+        final var p2 = (nodesOffset + mesh.getP2(polygon)) * Mesh.NODE_SIZE;
+        final var p3 = (nodesOffset + mesh.getP3(polygon)) * Mesh.NODE_SIZE;
+
+        final var minX = Math.min(nodes[p1], Math.min(nodes[p2], nodes[p3]));
+        final var maxX = Math.max(nodes[p1], Math.max(nodes[p2], nodes[p3]));
+        final var minY = Math.min(nodes[p1 + 1], Math.min(nodes[p2 + 1], nodes[p3 + 1]));
+        final var maxY = Math.max(nodes[p1 + 1], Math.max(nodes[p2 + 1], nodes[p3 + 1]));
+
+        // Also rejects NaN and infinite coordinates
+        if (!(maxX >= 0 && minX < width && maxY >= 0 && minY < height) || maxX - minX > 1e6 || maxY - minY > 1e6)
+            return EMPTY_BOUNDS;
+
+        final long minTileX = (int) Math.max(0, minX) / TILE_SIZE;
+        final long maxTileX = (int) Math.min(width - 1, maxX) / TILE_SIZE;
+        final long minTileY = (int) Math.max(0, minY) / TILE_SIZE;
+        final long maxTileY = (int) Math.min(height - 1, maxY) / TILE_SIZE;
+        return minTileX | maxTileX << 16 | minTileY << 32 | maxTileY << 48;
+    }
+
+    private static int minTileX(long bounds) {
+        return (int) (bounds & 0xFFFF);
+    }
+
+    private static int maxTileX(long bounds) {
+        return (int) (bounds >>> 16 & 0xFFFF);
+    }
+
+    private static int minTileY(long bounds) {
+        return (int) (bounds >>> 32 & 0xFFFF);
+    }
+
+    private static int maxTileY(long bounds) {
+        return (int) (bounds >>> 48 & 0xFFFF);
+    }
+
+    private void rasterizeTile(int tile) {
+        final var pixels = this.pixels;
+        final var width = this.width;
+        final var tileX = (tile % tilesX) * TILE_SIZE;
+        final var tileY = (tile / tilesX) * TILE_SIZE;
+        final var tileRight = Math.min(tileX + TILE_SIZE, width);
+        final var tileBottom = Math.min(tileY + TILE_SIZE, height);
+        final var depthOffset = tile * TILE_SIZE * TILE_SIZE;
+        final var isPainter = this.isPainter;
+
+        for (var y = tileY; y < tileBottom; y++)
+            for (var x = tileX; x < tileRight; x++) {
+                pixels.put(y * width + x, BACKGROUND_COLOR);
+                if (!isPainter)
+                    depth[depthOffset + (y - tileY) * TILE_SIZE + (x - tileX)] = Float.NEGATIVE_INFINITY;
+            }
+
+        final var frame = this.frame;
+        final var nodes = frame.getNodes();
+        var item = 0;
+
+        for (var i = tileOffsets[tile]; i < tileOffsets[tile + 1]; i++) {
+            // Without the painter polygons are sorted, so the item only moves forward
+            if (isPainter)
+                item = findItem(frame, tilePolygons[i]);
+            else
+                while (tilePolygons[i] >= frame.getPolygonsOffset(item + 1))
+                    item++;
+
+            final var mesh = frame.getMesh(item);
+            final var nodesOffset = frame.getNodesOffset(item);
+            final var polygon = tilePolygons[i] - frame.getPolygonsOffset(item);
+            final var p1 = (nodesOffset + mesh.getP1(polygon)) * Mesh.NODE_SIZE;
+            final var p2 = (nodesOffset + mesh.getP2(polygon)) * Mesh.NODE_SIZE;
+            final var p3 = (nodesOffset + mesh.getP3(polygon)) * Mesh.NODE_SIZE;
+
+            final var x1 = nodes[p1];
+            final var y1 = nodes[p1 + 1];
+            final var z1 = nodes[p1 + 2];
+            final var x2 = nodes[p2];
+            final var y2 = nodes[p2 + 1];
+            final var z2 = nodes[p2 + 2];
+            final var x3 = nodes[p3];
+            final var y3 = nodes[p3 + 1];
+            final var z3 = nodes[p3 + 2];
+
+            final var area = (x2 - x1) * (y3 - y1) - (y2 - y1) * (x3 - x1);
+            if (area == 0 || Double.isNaN(area))
+                continue;
+
+            final var color = shade(mesh.getFacePlanes(), polygon, frame.normalMatrices,
+                    item * RenderPipeline.NORMAL_MATRIX_SIZE);
+
+            final var minX = Math.max(tileX, (int) Math.floor(Math.min(x1, Math.min(x2, x3))));
+            final var maxX = Math.min(tileRight - 1, (int) Math.ceil(Math.max(x1, Math.max(x2, x3))));
+            final var minY = Math.max(tileY, (int) Math.floor(Math.min(y1, Math.min(y2, y3))));
+            final var maxY = Math.min(tileBottom - 1, (int) Math.ceil(Math.max(y1, Math.max(y2, y3))));
+
+            // Edge functions are positive inside whatever the winding is
+            final var sign = area > 0 ? 1 : -1;
+            final var inverseArea = 1 / area;
+
+            final var stepX1 = -(y3 - y2) * sign;
+            final var stepX2 = -(y1 - y3) * sign;
+            final var stepX3 = -(y2 - y1) * sign;
+
+            for (var y = minY; y <= maxY; y++) {
+                final var sampleX = minX + 0.5;
+                final var sampleY = y + 0.5;
+
+                var w1 = ((x3 - x2) * (sampleY - y2) - (y3 - y2) * (sampleX - x2)) * sign;
+                var w2 = ((x1 - x3) * (sampleY - y3) - (y1 - y3) * (sampleX - x3)) * sign;
+                var w3 = ((x2 - x1) * (sampleY - y1) - (y2 - y1) * (sampleX - x1)) * sign;
+
+                final var rowOffset = y * width;
+                final var depthRowOffset = depthOffset + (y - tileY) * TILE_SIZE - tileX;
+
+                for (var x = minX; x <= maxX; x++) {
+                    if (w1 >= 0 && w2 >= 0 && w3 >= 0) {
+                        if (isPainter)
+                            pixels.put(rowOffset + x, color);
+                        else {
+                            final var z = (float) ((w1 * z1 + w2 * z2 + w3 * z3) * sign * inverseArea);
+                            if (z > depth[depthRowOffset + x]) {
+                                depth[depthRowOffset + x] = z;
+                                pixels.put(rowOffset + x, color);
+                            }
+                        }
+                    }
+
+                    w1 += stepX1;
+                    w2 += stepX2;
+                    w3 += stepX3;
+                }
+            }
+        }
+    }
+
+    // Two-sided Lambert shading with the light at the viewer. The cached model space
+    // normal is taken to view space by the normal matrix of the item.
+    private static int shade(FacePlanes planes, int polygon, double[] normalMatrices, int offset) {
+        final var x = planes.getNormalX(polygon);
+        final var y = planes.getNormalY(polygon);
+        final var z = planes.getNormalZ(polygon);
+
+        final var nx = x * normalMatrices[offset] + y * normalMatrices[offset + 3] + z * normalMatrices[offset + 6];
+        final var ny = x * normalMatrices[offset + 1] + y * normalMatrices[offset + 4] + z * normalMatrices[offset + 7];
+        final var nz = x * normalMatrices[offset + 2] + y * normalMatrices[offset + 5] + z * normalMatrices[offset + 8];
+        final var length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+        final var intensity = length == 0 ? AMBIENT_LIGHT : AMBIENT_LIGHT + (1 - AMBIENT_LIGHT) * Math.abs(nz) / length;
+        final var green = (int) Math.round(255 * Math.min(1, intensity));
+        return 0xFF000000 | green << 8;
+    }
+
+    private final class TileTask extends RecursiveAction {
+
+        private final int tile;
+
+        TileTask(int tile) {
+            this.tile = tile;
+        }
+
+        @Override
+        protected void compute() {
+            rasterizeTile(tile);
+        }
+
+    }
+
+    // Forks the tasks of the first tilesCount tiles, the last one runs on the calling thread
+    private final class RootTask extends RecursiveAction {
+
+        int tilesCount;
+
+        @Override
+        protected void compute() {
+            for (var tile = 0; tile < tilesCount; tile++)
+                tileTasks[tile].reinitialize();
+
+            for (var tile = 0; tile < tilesCount - 1; tile++)
+                tileTasks[tile].fork();
+            tileTasks[tilesCount - 1].invoke();
+
+            for (var tile = tilesCount - 2; tile >= 0; tile--)
+                tileTasks[tile].join();
+        }
+
+    }
+
+}
@@ -0,0 +1,7 @@
+package app.Rendering;
+
+public enum RenderMode {
+    WIREFRAME,
+    FILLED,
+    PAINTER
+}
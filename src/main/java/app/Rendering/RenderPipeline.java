@@ -0,0 +1,87 @@
+package app.Rendering;
+
+import app.AffineOperations.Matrix4;
+import app.Mesh;
+import app.Profiling.Profiler;
+import app.Profiling.RenderStage;
+
+// Geometry stage shared by the interactive and the headless renderers: model transform,
+// projection and viewport mapping of every item of a frame request in one fused pass,
+// then Roberts visibility against the cached model space polygon planes.
+// A pipeline reuses its scratch state and must be confined to one thread.
+public final class RenderPipeline {
+
+    static final int NORMAL_MATRIX_SIZE = 9;
+
+    private final VisibilityEngine visibilityEngine;
+    private final Matrix4 perspective = new Matrix4().setPerspective();
+    private final Matrix4 modelMatrix = new Matrix4();
+    private final Matrix4 operator = new Matrix4();
+    private final Matrix4 inverse = new Matrix4();
+
+    public RenderPipeline() {
+        this(new VisibilityEngine());
+    }
+
+    public RenderPipeline(VisibilityEngine visibilityEngine) {
+        this.visibilityEngine = visibilityEngine;
+    }
+
+    public void render(FrameRequest request, Frame frame) {
+        frame.setItems(request.meshes, request.itemsCount);
+        frame.isComposed = false;
+        frame.isRobertsAlgorithmEnabled = request.isRobertsAlgorithmEnabled;
+        frame.width = request.width;
+        frame.height = request.height;
+
+        final var timings = frame.timings;
+        timings.reset();
+        final var allocatedBytes = Profiler.getAllocatedBytes();
+
+        // The viewport mapping puts the origin in the middle of the canvas
+        final var xOffset = request.width / 2;
+        final var yOffset = request.height / 2;
+
+        final var nodes = frame.nodes;
+        for (var item = 0; item < request.itemsCount; item++) {
+            final var mesh = request.meshes[item];
+            modelMatrix.set(request.modelMatrices, item * Matrix4.SIZE);
+
+            operator.set(modelMatrix);
+            if (request.isPerspectiveProjection)
+                operator.multiply(perspective);
+
+            final var nodesOffset = frame.nodesOffsets[item] * Mesh.NODE_SIZE;
+            var start = Profiler.begin();
+            operator.transform(mesh, nodes, nodesOffset, xOffset, yOffset);
+            setNormalMatrix(modelMatrix, inverse, frame.normalMatrices, item * NORMAL_MATRIX_SIZE);
+            timings.end(RenderStage.TRANSFORM, start);
+
+            if (request.isRobertsAlgorithmEnabled) {
+                start = Profiler.begin();
+                visibilityEngine.calculate(mesh, operator, frame.visiblePolygons, frame.polygonsOffsets[item]);
+                timings.end(RenderStage.VISIBILITY, start);
+            }
+        }
+
+        timings.addAllocatedBytesSince(allocatedBytes);
+    }
+
+    // Normals go through the inverse transpose of the linear part of the model matrix,
+    // stored row by row. A singular model matrix leaves the normals unchanged.
+    // The inverse is scratch space.
+    static void setNormalMatrix(Matrix4 modelMatrix, Matrix4 inverse, double[] destination, int offset) {
+        if (!Matrix4.invert(modelMatrix, inverse))
+            inverse.setIdentity();
+
+        setNormalMatrixOfInverse(inverse, destination, offset);
+    }
+
+    // Same from the inverse of the model matrix, already known
+    static void setNormalMatrixOfInverse(Matrix4 inverse, double[] destination, int offset) {
+        for (var row = 0; row < 3; row++)
+            for (var column = 0; column < 3; column++)
+                destination[offset + row * 3 + column] = inverse.get(column, row);
+    }
+
+}
@@ -0,0 +1,53 @@
+package app.Rendering;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Coalesces render requests so that at most one frame is drawn per JavaFX pulse.
+// The timer only runs while there is something to draw, an idle scene costs nothing.
+// Must be used from the JavaFX application thread, except requestRenderLater.
+public final class RenderScheduler extends AnimationTimer {
+
+    private final Runnable render;
+    private final AtomicBoolean isRequestPosted = new AtomicBoolean();
+
+    private boolean isDirty;
+    private boolean isRunning;
+
+    public RenderScheduler(Runnable render) {
+        this.render = render;
+    }
+
+    public void requestRender() {
+        isDirty = true;
+
+        if (!isRunning) {
+            isRunning = true;
+            start();
+        }
+    }
+
+    // Safe to call from any thread, bursts of calls post a single request
+    public void requestRenderLater() {
+        if (isRequestPosted.compareAndSet(false, true))
+            Platform.runLater(() -> {
+                isRequestPosted.set(false);
+                requestRender();
+            });
+    }
+
+    @Override
+    public void handle(long now) {
+        if (!isDirty) {
+            isRunning = false;
+            stop();
+            return;
+        }
+
+        isDirty = false;
+        render.run();
+    }
+
+}
@@ -0,0 +1,89 @@
+package app.Rendering;
+
+import app.AffineOperations.Matrix4;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Runs the RenderPipeline on a dedicated thread. Only the latest submitted request is rendered,
+// finished frames are handed over through a FrameExchange. The level of detail is selected here
+// too, detail selectors of the requests belong to the worker thread. Requests with a views mode
+// are composed into the four views right away, the views are spread over the common pool.
+public final class RenderWorker implements AutoCloseable {
+
+    private final AtomicReference<FrameRequest> pendingRequest = new AtomicReference<>();
+    private final FrameExchange exchange = new FrameExchange();
+    private final Runnable onFrameReady;
+    private final Thread thread;
+    private volatile boolean isClosed;
+
+    // Owned by the worker thread
+    private final RenderPipeline pipeline = new RenderPipeline();
+    private final MultiViewRenderer multiViewRenderer = new MultiViewRenderer();
+    private final Matrix4 modelMatrix = new Matrix4();
+
+    // onFrameReady is called on the worker thread after every published frame
+    public RenderWorker(Runnable onFrameReady) {
+        this.onFrameReady = onFrameReady;
+        this.thread = new Thread(this::run, "render-worker");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void submit(FrameRequest request) {
+        pendingRequest.set(request);
+        LockSupport.unpark(thread);
+    }
+
+    // Must only be called from one consumer thread
+    public Frame takeLatestFrame() {
+        return exchange.acquireLatest();
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+        LockSupport.unpark(thread);
+    }
+
+    // Helpers
+
+    private void run() {
+        while (!isClosed) {
+            final var request = pendingRequest.getAndSet(null);
+            if (request == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            try {
+                final var frame = exchange.getBackFrame();
+                final var selector = request.detailSelector;
+                final var selected = request.selectDetail(modelMatrix);
+                if (selected.viewsMode != null)
+                    multiViewRenderer.render(selected, frame);
+                else
+                    pipeline.render(selected, frame);
+                frame.detailSelector = selector;
+                frame.resolution = selector != null ? selector.getResolution() : -1;
+
+                // Built once per mesh, keep it off the UI thread
+                for (var item = 0; item < frame.getItemsCount(); item++) {
+                    frame.getMesh(item).getEdges();
+                    frame.getMesh(item).getFacePlanes();
+                }
+            }
+            catch (RuntimeException e) {
+                System.out.println("Whoops, something went wrong: " + e);
+                continue;
+            }
+
+            exchange.publish();
+            onFrameReady.run();
+        }
+    }
+
+}
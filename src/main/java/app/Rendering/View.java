@@ -0,0 +1,42 @@
+package app.Rendering;
+
+import app.AffineOperations.Matrix4;
+
+// Fixed cameras of the multi-view layout, applied after the model matrix. The viewer looks
+// down the z axis from its positive side, so the top view turns world up (negative y)
+// towards it and the side view looks at the figure from its right.
+public enum View {
+    PERSPECTIVE("Perspective"),
+    FRONT("Front"),
+    TOP("Top"),
+    SIDE("Side");
+
+    private final String label;
+
+    View(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean isPerspective() {
+        return this == PERSPECTIVE;
+    }
+
+    // Turn of the camera, the perspective projection follows it when the view has one
+    public Matrix4 getMatrix(Matrix4 destination) {
+        switch (this) {
+            case TOP:
+                return destination.setOXRotation(-Math.PI / 2);
+
+            case SIDE:
+                return destination.setOYRotation(-Math.PI / 2);
+
+            default:
+                return destination.setIdentity();
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package app.Rendering;
+
+import java.util.Arrays;
+
+// One bit per polygon, set when the polygon faces the viewer.
+public final class VisibilityBitSet {
+
+    private long[] words = new long[0];
+    private int size;
+
+    public void resize(int size) {
+        final var wordsCount = wordsCount(size);
+        if (words.length < wordsCount)
+            words = new long[wordsCount];
+
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int polygon) {
+        return (words[polygon >>> 6] & (1L << polygon)) != 0;
+    }
+
+    public void setAll() {
+        final var wordsCount = wordsCount(size);
+        Arrays.fill(words, 0, wordsCount, -1L);
+
+        if (size % 64 != 0)
+            words[wordsCount - 1] = (1L << size) - 1;
+    }
+
+    public int cardinality() {
+        var result = 0;
+        for (var i = 0; i < wordsCount(size); i++)
+            result += Long.bitCount(words[i]);
+
+        return result;
+    }
+
+    long[] getWords() {
+        return words;
+    }
+
+    static int wordsCount(int size) {
+        return (size + 63) >>> 6;
+    }
+
+}
@@ -0,0 +1,175 @@
+package app.Rendering;
+
+import app.AffineOperations.Matrix4;
+import app.FacePlanes;
+import app.Mesh;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Roberts algorithm: a polygon is visible when the view point lies on the outer side
+// of its plane. The outer side follows the polygon winding, or is the one the figure middle
+// point is not on for the hand-wound figures, see Mesh.Orientation.
+// Polygon planes never change, so they are cached per mesh with their outer side known,
+// and the view point is brought back to model space through the inverse operator
+// instead. Every polygon then costs one dot product, under the perspective too.
+// Large meshes are split across fork-join workers in whole 64-polygon words,
+// so every word of the bitset is written by exactly one worker.
+// An engine reuses its scratch state and must be confined to one thread.
+public final class VisibilityEngine {
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 16 * 1024;
+
+    // The view point is on the z axis of the projected, not yet mapped nodes
+    public static final double VIEW_POINT_Z = 30000;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final Matrix4 inverse = new Matrix4();
+
+    public VisibilityEngine() {
+        this(ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    // A null pool keeps all the work on the calling thread
+    public VisibilityEngine(ForkJoinPool pool, int parallelThreshold) {
+        this.pool = pool;
+        this.parallelThreshold = Math.max(64, parallelThreshold);
+    }
+
+    // operator is the model matrix, followed by the projection if there is one
+    public void calculate(Mesh mesh, Matrix4 operator, VisibilityBitSet visibility) {
+        visibility.resize(mesh.getPolygonsCount());
+        calculate(mesh, operator, visibility, 0);
+    }
+
+    // Mesh polygons start at bit polygonsOffset of the bitset. The bitset must
+    // already be large enough and polygonsOffset must be a multiple of 64.
+    public void calculate(Mesh mesh, Matrix4 operator, VisibilityBitSet visibility, int polygonsOffset) {
+        // A singular operator flattens the mesh, no polygon faces the viewer then
+        if (!Matrix4.invert(operator, inverse)) {
+            calculate(mesh, 0, 0, 0, 0, visibility, polygonsOffset);
+            return;
+        }
+
+        // (0, 0, VIEW_POINT_Z, 1) times the inverse, kept homogeneous with a positive w
+        final var sign = VIEW_POINT_Z * inverse.get(2, 3) + inverse.get(3, 3) < 0 ? -1 : 1;
+        calculate(mesh,
+                sign * (VIEW_POINT_Z * inverse.get(2, 0) + inverse.get(3, 0)),
+                sign * (VIEW_POINT_Z * inverse.get(2, 1) + inverse.get(3, 1)),
+                sign * (VIEW_POINT_Z * inverse.get(2, 2) + inverse.get(3, 2)),
+                sign * (VIEW_POINT_Z * inverse.get(2, 3) + inverse.get(3, 3)),
+                visibility, polygonsOffset);
+    }
+
+    // Same with the view point already in model space, homogeneous with a non-negative w.
+    // The zero point stands for a singular operator and hides every polygon.
+    public void calculate(Mesh mesh, double viewX, double viewY, double viewZ, double viewW,
+                          VisibilityBitSet visibility, int polygonsOffset) {
+        if (polygonsOffset % 64 != 0)
+            throw new IllegalArgumentException("Polygons offset must be a multiple of 64: " + polygonsOffset);
+
+        final var polygonsCount = mesh.getPolygonsCount();
+        final var wordsOffset = polygonsOffset >>> 6;
+        final var wordsCount = VisibilityBitSet.wordsCount(polygonsCount);
+        final var words = visibility.getWords();
+
+        if (viewX == 0 && viewY == 0 && viewZ == 0 && viewW == 0) {
+            for (var word = 0; word < wordsCount; word++)
+                words[wordsOffset + word] = 0;
+            return;
+        }
+
+        final var target = new Target(mesh.getFacePlanes(), polygonsCount, viewX, viewY, viewZ, viewW, words, wordsOffset);
+
+        if (polygonsCount < parallelThreshold || pool == null || pool.getParallelism() < 2) {
+            calculateWords(target, 0, wordsCount);
+            return;
+        }
+
+        final var wordsPerTask = parallelThreshold >>> 6;
+        pool.invoke(new Task(target, 0, wordsCount, wordsPerTask));
+    }
+
+    // Helpers
+
+    private static void calculateWords(Target target, int fromWord, int toWord) {
+        final var planes = target.planes;
+        final var words = target.words;
+        final var vx = target.viewX;
+        final var vy = target.viewY;
+        final var vz = target.viewZ;
+        final var vw = target.viewW;
+        final var polygonsCount = target.polygonsCount;
+
+        for (var word = fromWord; word < toWord; word++) {
+            final var from = word << 6;
+            final var to = Math.min(from + 64, polygonsCount);
+            var bits = 0L;
+
+            for (var i = from; i < to; i++) {
+                final var viewTest = planes.getNormalX(i) * vx + planes.getNormalY(i) * vy
+                        + planes.getNormalZ(i) * vz + planes.getOffset(i) * vw;
+
+                if (!(viewTest < 0))
+                    bits |= 1L << i;
+            }
+
+            words[target.wordsOffset + word] = bits;
+        }
+    }
+
+    private static final class Target {
+
+        final FacePlanes planes;
+        final int polygonsCount;
+        final double viewX;
+        final double viewY;
+        final double viewZ;
+        final double viewW;
+        final long[] words;
+        final int wordsOffset;
+
+        Target(FacePlanes planes, int polygonsCount, double viewX, double viewY, double viewZ, double viewW,
+               long[] words, int wordsOffset) {
+            this.planes = planes;
+            this.polygonsCount = polygonsCount;
+            this.viewX = viewX;
+            this.viewY = viewY;
+            this.viewZ = viewZ;
+            this.viewW = viewW;
+            this.words = words;
+            this.wordsOffset = wordsOffset;
+        }
+
+    }
+
+    private static final class Task extends RecursiveAction {
+
+        private final Target target;
+        private final int fromWord;
+        private final int toWord;
+        private final int wordsPerTask;
+
+        Task(Target target, int fromWord, int toWord, int wordsPerTask) {
+            this.target = target;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+            this.wordsPerTask = wordsPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (toWord - fromWord <= wordsPerTask) {
+                calculateWords(target, fromWord, toWord);
+                return;
+            }
+
+            final var middle = (fromWord + toWord) >>> 1;
+            invokeAll(new Task(target, fromWord, middle, wordsPerTask),
+                    new Task(target, middle, toWord, wordsPerTask));
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package app.SceneGraph;
+
+import app.AffineOperations.Matrix4;
+
+// Region of the world that ends up on the canvas. Planes are kept as (a, b, c, d) with
+// a * x + b * y + c * z + d <= 0 inside, in world space: a view space plane is brought
+// back through the view matrix, so the boxes of the hierarchy are tested untransformed.
+public final class Frustum {
+
+    static final int MAX_PLANES = 5;
+
+    // Closest depth that is still drawn in the perspective projection, in front of the eye
+    private static final double NEAR_DISTANCE = 1;
+
+    final double[] planes = new double[MAX_PLANES * 4];
+    int planesCount;
+
+    // The view matrix maps world to view space, where the canvas spans
+    // [-width / 2, width / 2] x [-height / 2, height / 2] around the origin
+    public Frustum set(Matrix4 viewMatrix, boolean isPerspectiveProjection, double width, double height) {
+        planesCount = 0;
+
+        // The perspective divides x and y by 1 - z / d, so the sides lean towards the eye at z = d
+        final var slopeX = isPerspectiveProjection ? width / 2 / Matrix4.PERSPECTIVE_DISTANCE : 0;
+        final var slopeY = isPerspectiveProjection ? height / 2 / Matrix4.PERSPECTIVE_DISTANCE : 0;
+
+        addPlane(viewMatrix, 1, 0, slopeX, -width / 2);
+        addPlane(viewMatrix, -1, 0, slopeX, -width / 2);
+        addPlane(viewMatrix, 0, 1, slopeY, -height / 2);
+        addPlane(viewMatrix, 0, -1, slopeY, -height / 2);
+
+        if (isPerspectiveProjection)
+            addPlane(viewMatrix, 0, 0, 1, NEAR_DISTANCE - Matrix4.PERSPECTIVE_DISTANCE);
+
+        return this;
+    }
+
+    public int getPlanesCount() {
+        return planesCount;
+    }
+
+    // Helpers
+
+    // A view space point is the world row vector times the view matrix, so the world
+    // plane is the view matrix times the plane as a column
+    private void addPlane(Matrix4 view, double a, double b, double c, double d) {
+        final var offset = planesCount * 4;
+        for (var row = 0; row < 4; row++)
+            planes[offset + row] = view.get(row, 0) * a + view.get(row, 1) * b + view.get(row, 2) * c + view.get(row, 3) * d;
+
+        planesCount++;
+    }
+
+}
@@ -0,0 +1,60 @@
+package app.SceneGraph;
+
+import app.AffineOperations.Matrix4;
+import app.Mesh;
+
+// One placement of a shared mesh in a scene. The transform is changed through the scene,
+// which keeps the bounding volume hierarchy in sync.
+public final class Instance {
+
+    final Mesh mesh;
+    final Matrix4 matrix;
+
+    // Bounding sphere of the mesh in model space
+    final double centerX, centerY, centerZ, radius;
+
+    // Position in the scene and leaf of the hierarchy, maintained by the scene
+    int index;
+    int leaf;
+
+    Instance(Mesh mesh, Matrix4 matrix, double[] boundingSphere) {
+        this.mesh = mesh;
+        this.matrix = new Matrix4(matrix);
+        this.centerX = boundingSphere[0];
+        this.centerY = boundingSphere[1];
+        this.centerZ = boundingSphere[2];
+        this.radius = boundingSphere[3];
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    // Owned by the instance, must not be modified
+    public Matrix4 getMatrix() {
+        return matrix;
+    }
+
+    // Writes min x, y, z and max x, y, z of the world space bounding box of the
+    // transformed bounding sphere, exact for any affine transform
+    void getBounds(double[] destination, int offset) {
+        final var m = matrix;
+        final var w = m.get(3, 3);
+        final var x = (centerX * m.get(0, 0) + centerY * m.get(1, 0) + centerZ * m.get(2, 0) + m.get(3, 0)) / w;
+        final var y = (centerX * m.get(0, 1) + centerY * m.get(1, 1) + centerZ * m.get(2, 1) + m.get(3, 1)) / w;
+        final var z = (centerX * m.get(0, 2) + centerY * m.get(1, 2) + centerZ * m.get(2, 2) + m.get(3, 2)) / w;
+
+        // A sphere is stretched along every axis by the length of that column of the linear part
+        final var extentX = radius * Math.hypot(Math.hypot(m.get(0, 0), m.get(1, 0)), m.get(2, 0)) / Math.abs(w);
+        final var extentY = radius * Math.hypot(Math.hypot(m.get(0, 1), m.get(1, 1)), m.get(2, 1)) / Math.abs(w);
+        final var extentZ = radius * Math.hypot(Math.hypot(m.get(0, 2), m.get(1, 2)), m.get(2, 2)) / Math.abs(w);
+
+        destination[offset] = x - extentX;
+        destination[offset + 1] = y - extentY;
+        destination[offset + 2] = z - extentZ;
+        destination[offset + 3] = x + extentX;
+        destination[offset + 4] = y + extentY;
+        destination[offset + 5] = z + extentZ;
+    }
+
+}
@@ -0,0 +1,298 @@
+package app.SceneGraph;
+
+import app.AffineOperations.Matrix4;
+import app.Mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+// Flat scene of mesh instances. Any number of instances can share one immutable mesh,
+// each of them has its own model matrix.
+// The world space bounding boxes of the instances are kept in a binary bounding volume
+// hierarchy with one instance per leaf. Moving an instance refits the boxes on the path
+// to the root only, the hierarchy is rebuilt after adding or removing instances and once
+// the refits add up to a few per instance, because they slowly loosen the tree.
+// Not thread-safe, a scene belongs to the thread that edits it.
+public final class SceneGraph {
+
+    private static final int BOX_SIZE = 6;
+    private static final int NO_NODE = -1;
+    private static final int REFITS_PER_INSTANCE_BEFORE_REBUILD = 8;
+
+    private final ArrayList<Instance> instances = new ArrayList<>();
+    private final Map<Mesh, double[]> boundingSpheres = new WeakHashMap<>();
+
+    // Node 0 is the root. Inner nodes have two children, a leaf stores ~instance index
+    // in its first child slot.
+    private double[] boxes = new double[0];
+    private int[] children = new int[0];
+    private int[] parents = new int[0];
+    private int nodesCount;
+    private boolean isHierarchyValid;
+    private int refitsSinceBuild;
+
+    // Build and traversal scratch
+    private int[] order = new int[0];
+    private double[] centroids = new double[0];
+    private int[] stack = new int[0];
+    private final double[] box = new double[BOX_SIZE];
+
+    public Instance add(Mesh mesh, Matrix4 matrix) {
+        final var instance = new Instance(mesh, matrix, boundingSphere(mesh));
+        instance.index = instances.size();
+        instances.add(instance);
+        isHierarchyValid = false;
+        return instance;
+    }
+
+    public void remove(Instance instance) {
+        final var last = instances.remove(instances.size() - 1);
+        if (last != instance) {
+            last.index = instance.index;
+            instances.set(instance.index, last);
+        }
+
+        isHierarchyValid = false;
+    }
+
+    public void clear() {
+        instances.clear();
+        isHierarchyValid = false;
+    }
+
+    public int getInstancesCount() {
+        return instances.size();
+    }
+
+    public Instance getInstance(int index) {
+        return instances.get(index);
+    }
+
+    public void setMatrix(Instance instance, Matrix4 matrix) {
+        instance.matrix.set(matrix);
+        if (!isHierarchyValid)
+            return;
+
+        if (++refitsSinceBuild > instances.size() * REFITS_PER_INSTANCE_BEFORE_REBUILD) {
+            isHierarchyValid = false;
+            return;
+        }
+
+        refit(instance.leaf);
+    }
+
+    // Visits every instance whose bounding box is not entirely outside the frustum.
+    // A subtree outside any plane is skipped as a whole, and planes a subtree is entirely
+    // inside of are not tested again below it.
+    public void cull(Frustum frustum, Consumer<Instance> visitor) {
+        if (!isHierarchyValid)
+            build();
+        if (instances.isEmpty())
+            return;
+
+        final var planes = frustum.planes;
+        var stackSize = 0;
+        stack[stackSize++] = 0;
+        stack[stackSize++] = (1 << frustum.planesCount) - 1;
+
+        traversal:
+        while (stackSize > 0) {
+            var planesMask = stack[--stackSize];
+            final var node = stack[--stackSize];
+            final var offset = node * BOX_SIZE;
+
+            for (var plane = 0; plane < frustum.planesCount; plane++) {
+                if ((planesMask & 1 << plane) == 0)
+                    continue;
+
+                final var a = planes[plane * 4];
+                final var b = planes[plane * 4 + 1];
+                final var c = planes[plane * 4 + 2];
+                final var d = planes[plane * 4 + 3];
+
+                // Corners of the box closest to and farthest from the inside of the plane
+                final var nearest = a * (a > 0 ? boxes[offset] : boxes[offset + 3])
+                        + b * (b > 0 ? boxes[offset + 1] : boxes[offset + 4])
+                        + c * (c > 0 ? boxes[offset + 2] : boxes[offset + 5]) + d;
+                if (nearest > 0)
+                    continue traversal;
+
+                final var farthest = a * (a > 0 ? boxes[offset + 3] : boxes[offset])
+                        + b * (b > 0 ? boxes[offset + 4] : boxes[offset + 1])
+                        + c * (c > 0 ? boxes[offset + 5] : boxes[offset + 2]) + d;
+                if (farthest <= 0)
+                    planesMask &= ~(1 << plane);
+            }
+
+            if (children[node * 2] < 0) {
+                visitor.accept(instances.get(~children[node * 2]));
+                continue;
+            }
+
+            stack[stackSize++] = children[node * 2 + 1];
+            stack[stackSize++] = planesMask;
+            stack[stackSize++] = children[node * 2];
+            stack[stackSize++] = planesMask;
+        }
+    }
+
+    // Helpers
+
+    private double[] boundingSphere(Mesh mesh) {
+        return boundingSpheres.computeIfAbsent(mesh, key -> {
+            final var min = new double[] { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+            final var max = new double[] { -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+            for (var node = 0; node < key.getNodesCount(); node++) {
+                min[0] = Math.min(min[0], key.getX(node));
+                min[1] = Math.min(min[1], key.getY(node));
+                min[2] = Math.min(min[2], key.getZ(node));
+                max[0] = Math.max(max[0], key.getX(node));
+                max[1] = Math.max(max[1], key.getY(node));
+                max[2] = Math.max(max[2], key.getZ(node));
+            }
+
+            if (key.getNodesCount() == 0)
+                return new double[4];
+
+            final var x = (min[0] + max[0]) / 2;
+            final var y = (min[1] + max[1]) / 2;
+            final var z = (min[2] + max[2]) / 2;
+            var radius = 0d;
+            for (var node = 0; node < key.getNodesCount(); node++)
+                radius = Math.max(radius, Math.hypot(Math.hypot(key.getX(node) - x, key.getY(node) - y), key.getZ(node) - z));
+
+            return new double[] { x, y, z, radius };
+        });
+    }
+
+    private void build() {
+        final var instancesCount = instances.size();
+        final var capacity = Math.max(1, 2 * instancesCount - 1);
+
+        if (children.length < capacity * 2) {
+            boxes = new double[capacity * BOX_SIZE];
+            children = new int[capacity * 2];
+            parents = new int[capacity];
+            stack = new int[capacity * 2 + 2];
+        }
+
+        if (order.length < instancesCount) {
+            order = new int[instancesCount];
+            centroids = new double[instancesCount * 3];
+        }
+
+        for (var i = 0; i < instancesCount; i++) {
+            instances.get(i).getBounds(box, 0);
+            order[i] = i;
+            centroids[i * 3] = (box[0] + box[3]) / 2;
+            centroids[i * 3 + 1] = (box[1] + box[4]) / 2;
+            centroids[i * 3 + 2] = (box[2] + box[5]) / 2;
+        }
+
+        nodesCount = 0;
+        if (instancesCount > 0)
+            build(0, instancesCount, NO_NODE);
+
+        isHierarchyValid = true;
+        refitsSinceBuild = 0;
+    }
+
+    // Splits the instances at the median of the longest axis of their centroids
+    private int build(int from, int to, int parent) {
+        final var node = nodesCount++;
+        parents[node] = parent;
+
+        if (to - from == 1) {
+            final var instance = instances.get(order[from]);
+            instance.leaf = node;
+            instance.getBounds(boxes, node * BOX_SIZE);
+            children[node * 2] = ~order[from];
+            children[node * 2 + 1] = NO_NODE;
+            return node;
+        }
+
+        final var min = new double[] { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+        final var max = new double[] { -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+        for (var i = from; i < to; i++)
+            for (var axis = 0; axis < 3; axis++) {
+                min[axis] = Math.min(min[axis], centroids[order[i] * 3 + axis]);
+                max[axis] = Math.max(max[axis], centroids[order[i] * 3 + axis]);
+            }
+
+        var axis = 0;
+        if (max[1] - min[1] > max[axis] - min[axis])
+            axis = 1;
+        if (max[2] - min[2] > max[axis] - min[axis])
+            axis = 2;
+
+        final var middle = (from + to) >>> 1;
+        select(from, to, middle, axis);
+
+        final var left = build(from, middle, node);
+        final var right = build(middle, to, node);
+        children[node * 2] = left;
+        children[node * 2 + 1] = right;
+        union(left, right, boxes, node * BOX_SIZE);
+        return node;
+    }
+
+    // Partial quicksort of order[from, to) by centroid, so that the k-th is in place
+    private void select(int from, int to, int k, int axis) {
+        var left = from;
+        var right = to - 1;
+
+        while (left < right) {
+            final var pivot = centroids[order[(left + right) >>> 1] * 3 + axis];
+            var i = left;
+            var j = right;
+
+            while (i <= j) {
+                while (centroids[order[i] * 3 + axis] < pivot)
+                    i++;
+                while (centroids[order[j] * 3 + axis] > pivot)
+                    j--;
+
+                if (i <= j) {
+                    final var swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+
+            if (k <= j)
+                right = j;
+            else if (k >= i)
+                left = i;
+            else
+                return;
+        }
+    }
+
+    private void refit(int leaf) {
+        final var instance = instances.get(~children[leaf * 2]);
+        instance.getBounds(boxes, leaf * BOX_SIZE);
+
+        for (var node = parents[leaf]; node != NO_NODE; node = parents[node]) {
+            union(children[node * 2], children[node * 2 + 1], box, 0);
+
+            // Boxes above an unchanged one are unchanged as well
+            if (Arrays.equals(box, 0, BOX_SIZE, boxes, node * BOX_SIZE, node * BOX_SIZE + BOX_SIZE))
+                return;
+
+            System.arraycopy(box, 0, boxes, node * BOX_SIZE, BOX_SIZE);
+        }
+    }
+
+    private void union(int left, int right, double[] destination, int offset) {
+        final var l = left * BOX_SIZE;
+        final var r = right * BOX_SIZE;
+        for (var i = 0; i < 3; i++) {
+            destination[offset + i] = Math.min(boxes[l + i], boxes[r + i]);
+            destination[offset + i + 3] = Math.max(boxes[l + i + 3], boxes[r + i + 3]);
+        }
+    }
+
+}
@@ -0,0 +1,487 @@
+package app;
+
+import app.AffineOperations.Matrix4;
+import app.Rendering.DetailSelector;
+import app.Rendering.VisibilityEngine;
+
+import java.util.Arrays;
+
+// Sphere without poles refined where it matters under the current transform. Icosahedron
+// faces are split in four, recursively, while a face is at least partly front-facing, inside
+// the viewport and its edges are longer than MAX_EDGE_PIXELS on screen. Split faces, their
+// children and the nodes are kept between updates, so following a rotation or a zoom only
+// revisits the faces of the current refinement. The tree starts over from the icosahedron
+// once it holds more than MAX_FACES faces. Every edge midpoint is created once and found again
+// through an edge to midpoint map. A face next to finer faces gets their nodes on its
+// edges, it is drawn as a fan around its own middle node then, so there are no cracks.
+public final class SphereSubdivision implements DetailSelector {
+
+    public static final double RADIUS = 1.13 * 150;
+    public static final double MAX_EDGE_PIXELS = 16;
+    public static final int MAX_DEPTH = 10;
+    public static final int MAX_FACES = 1 << 20;
+
+    // A split face is merged back only once it is this much below the threshold
+    private static final double HYSTERESIS = 0.25;
+    private static final int NO_NODE = -1;
+
+    private final Mesh base;
+    private final boolean isBaseOnSphere;
+    private MeshBuilder nodes;
+
+    // Open addressing map from the packed node pair of an edge to its midpoint node
+    private long[] edgeKeys;
+    private int[] edgeMidpoints;
+    private int edgesCount;
+
+    // Faces of the tree, the first rootsCount are the faces of the base mesh.
+    // Children of a face are four consecutive faces, or NO_NODE before the first split.
+    private final int rootsCount;
+    private int[] corners = new int[0];
+    private int[] children = new int[0];
+    private boolean[] isSplit = new boolean[0];
+    private int[] middleNodes = new int[0];
+    private int facesCount;
+
+    // Update scratch: the eye in model space and stamps of the current refinement
+    private final Matrix4 perspective = new Matrix4().setPerspective();
+    private final Matrix4 operator = new Matrix4();
+    private final Matrix4 inverse = new Matrix4();
+    private double eyeX;
+    private double eyeY;
+    private double eyeZ;
+    private double scale;
+    private double halfWidth;
+    private double halfHeight;
+    private double screenSize;
+    private int epoch;
+    private int[] splitEpochs = new int[0];
+    private int[] outputEpochs = new int[0];
+    private int[] outputNodes = new int[0];
+    private int[] boundary = new int[16];
+    private int boundaryCount;
+    private boolean isChanged;
+    private int depth;
+
+    private Mesh mesh;
+
+    // Corners of the icosahedron are pushed out to the sphere too, unlike in the figure,
+    // or they would show as dents once the faces around them are small
+    public SphereSubdivision() {
+        this(Figure.ICOSAHEDRON.getMesh(), true);
+    }
+
+    // Every node of the base mesh is expected to lie around the origin
+    SphereSubdivision(Mesh base, boolean isBaseOnSphere) {
+        this.base = base;
+        this.isBaseOnSphere = isBaseOnSphere;
+        this.rootsCount = base.getPolygonsCount();
+        clear();
+    }
+
+    // Every face of the base split depth times, the uniform sphere of the figure
+    static Mesh uniform(Mesh base, int depth) {
+        final var subdivision = new SphereSubdivision(base, false);
+        final var faces = new int[(base.getPolygonsCount() << 2 * depth) * Mesh.POLYGON_SIZE];
+        for (var polygon = 0; polygon < base.getPolygonsCount(); polygon++) {
+            faces[polygon * 3] = base.getP1(polygon);
+            faces[polygon * 3 + 1] = base.getP2(polygon);
+            faces[polygon * 3 + 2] = base.getP3(polygon);
+        }
+
+        // Faces are split in place from the last one, so no face is overwritten before it is read
+        var facesCount = base.getPolygonsCount();
+        for (var level = 0; level < depth; level++) {
+            for (var face = facesCount - 1; face >= 0; face--) {
+                final var p1 = faces[face * 3];
+                final var p2 = faces[face * 3 + 1];
+                final var p3 = faces[face * 3 + 2];
+                final var m12 = subdivision.midpoint(p1, p2);
+                final var m13 = subdivision.midpoint(p1, p3);
+                final var m23 = subdivision.midpoint(p2, p3);
+
+                final var offset = face * 4 * 3;
+                setFace(faces, offset, p1, m12, m13);
+                setFace(faces, offset + 3, p2, m12, m23);
+                setFace(faces, offset + 6, p3, m13, m23);
+                setFace(faces, offset + 9, m12, m13, m23);
+            }
+
+            facesCount *= 4;
+        }
+
+        final var nodes = subdivision.nodes;
+        final var coordinates = new double[nodes.getNodesCount() * Mesh.NODE_SIZE];
+        for (var node = 0; node < nodes.getNodesCount(); node++) {
+            coordinates[node * Mesh.NODE_SIZE] = nodes.getX(node);
+            coordinates[node * Mesh.NODE_SIZE + 1] = nodes.getY(node);
+            coordinates[node * Mesh.NODE_SIZE + 2] = nodes.getZ(node);
+        }
+
+        return Mesh.wrap(coordinates, faces).withOrientation(base.getOrientation());
+    }
+
+    // Must be called from a single thread. The same mesh comes back while the refinement
+    // does not change, so the data derived from it is kept too.
+    public Mesh update(Matrix4 modelMatrix, boolean isPerspectiveProjection, double width, double height) {
+        operator.set(modelMatrix);
+        if (isPerspectiveProjection)
+            operator.multiply(perspective);
+
+        // The Roberts view point in model space, like the visibility of the rendered mesh.
+        // Without it nothing is refined.
+        final var z = VisibilityEngine.VIEW_POINT_Z;
+        final var hasEye = Matrix4.invert(operator, inverse);
+        final var w = z * inverse.get(2, 3) + inverse.get(3, 3);
+        eyeX = (z * inverse.get(2, 0) + inverse.get(3, 0)) / w;
+        eyeY = (z * inverse.get(2, 1) + inverse.get(3, 1)) / w;
+        eyeZ = (z * inverse.get(2, 2) + inverse.get(3, 2)) / w;
+
+        // Length factor of the linear part, the homogeneous coordinate of each face divides it
+        scale = hasEye && w > 0 ? modelMatrix.getUniformScale() * Math.abs(modelMatrix.get(3, 3)) : 0;
+        halfWidth = width / 2;
+        halfHeight = height / 2;
+
+        if (facesCount > MAX_FACES)
+            clear();
+
+        epoch++;
+        isChanged = mesh == null;
+        depth = 0;
+        for (var root = 0; root < rootsCount; root++)
+            refine(root, 0);
+
+        if (isChanged)
+            mesh = buildMesh();
+
+        return mesh;
+    }
+
+    @Override
+    public Mesh select(Matrix4 modelMatrix, boolean isPerspectiveProjection, double width, double height) {
+        return update(modelMatrix, isPerspectiveProjection, width, height);
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    // The depth as a figure resolution, deeper refinements count as the finest one
+    @Override
+    public int getResolution() {
+        return Math.min(depth, Figure.SPHERE_WITHOUT_POLES.getMaxResolution());
+    }
+
+    // Deepest level of the current refinement, 0 for the bare icosahedron
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getFacesCount() {
+        return facesCount;
+    }
+
+    public int getNodesCount() {
+        return nodes.getNodesCount();
+    }
+
+    // Helpers
+
+    private void clear() {
+        nodes = new MeshBuilder(base.getNodesCount() * 4, 0);
+        allocateEdges(64);
+        edgesCount = 0;
+        facesCount = 0;
+        mesh = null;
+
+        for (var node = 0; node < base.getNodesCount(); node++)
+            if (isBaseOnSphere)
+                addSphereNode(base.getX(node), base.getY(node), base.getZ(node));
+            else
+                addNode(base.getX(node), base.getY(node), base.getZ(node));
+
+        for (var polygon = 0; polygon < rootsCount; polygon++)
+            addFace(base.getP1(polygon), base.getP2(polygon), base.getP3(polygon));
+    }
+
+    private void refine(int face, int level) {
+        final var wantsSplit = level < MAX_DEPTH && isVisible(face)
+                && screenSize > MAX_EDGE_PIXELS * (isSplit[face] ? 1 - HYSTERESIS : 1);
+
+        if (wantsSplit != isSplit[face]) {
+            isSplit[face] = wantsSplit;
+            isChanged = true;
+        }
+
+        if (!wantsSplit) {
+            depth = Math.max(depth, level);
+            return;
+        }
+
+        if (children[face] == NO_NODE)
+            split(face);
+
+        // The outer edges of a split face are split for its neighbours as well
+        final var first = children[face];
+        splitEpochs[corners[first * 3 + 1]] = epoch;
+        splitEpochs[corners[first * 3 + 2]] = epoch;
+        splitEpochs[corners[(first + 1) * 3 + 2]] = epoch;
+
+        for (var child = first; child < first + 4; child++)
+            refine(child, level + 1);
+    }
+
+    private void split(int face) {
+        final var p1 = corners[face * 3];
+        final var p2 = corners[face * 3 + 1];
+        final var p3 = corners[face * 3 + 2];
+        final var m12 = midpoint(p1, p2);
+        final var m13 = midpoint(p1, p3);
+        final var m23 = midpoint(p2, p3);
+
+        // Same layout as the uniform subdivision, children keep the corner order
+        final var first = addFace(p1, m12, m13);
+        addFace(p2, m12, m23);
+        addFace(p3, m13, m23);
+        addFace(m12, m13, m23);
+        children[face] = first;
+    }
+
+    // Whether any point of the spherical patch of the face is seen from the eye and lands
+    // in the viewport, screenSize gets the longest edge in pixels then. The patch is inside
+    // the cone around the middle direction of the face reaching its farthest corner.
+    private boolean isVisible(int face) {
+        final var p1 = corners[face * 3];
+        final var p2 = corners[face * 3 + 1];
+        final var p3 = corners[face * 3 + 2];
+
+        final var length1 = length(p1);
+        final var length2 = length(p2);
+        final var length3 = length(p3);
+        var ax = nodes.getX(p1) / length1 + nodes.getX(p2) / length2 + nodes.getX(p3) / length3;
+        var ay = nodes.getY(p1) / length1 + nodes.getY(p2) / length2 + nodes.getY(p3) / length3;
+        var az = nodes.getZ(p1) / length1 + nodes.getZ(p2) / length2 + nodes.getZ(p3) / length3;
+
+        final var axisLength = Math.sqrt(ax * ax + ay * ay + az * az);
+        ax /= axisLength;
+        ay /= axisLength;
+        az /= axisLength;
+
+        final var cosCone = Math.min(cosine(p1, length1, ax, ay, az),
+                Math.min(cosine(p2, length2, ax, ay, az), cosine(p3, length3, ax, ay, az)));
+
+        // A point of the sphere is seen when eye . point >= RADIUS^2, the closest point
+        // of the cone to the eye direction is at the eye angle less the cone angle
+        final var eyeLength = Math.sqrt(eyeX * eyeX + eyeY * eyeY + eyeZ * eyeZ);
+        final var cosEye = (eyeX * ax + eyeY * ay + eyeZ * az) / eyeLength;
+        if (cosEye < cosCone) {
+            final var sinEye = Math.sqrt(Math.max(0, 1 - cosEye * cosEye));
+            final var sinCone = Math.sqrt(Math.max(0, 1 - cosCone * cosCone));
+            if (eyeLength * (cosEye * cosCone + sinEye * sinCone) < RADIUS)
+                return false;
+        }
+        else if (eyeLength < RADIUS)
+            return false;
+
+        // The patch fits in a ball of its longest edge around its middle point on the sphere
+        final var size = Math.sqrt(Math.max(distanceSquared(p1, p2), Math.max(distanceSquared(p1, p3), distanceSquared(p2, p3))));
+        final var x = ax * RADIUS;
+        final var y = ay * RADIUS;
+        final var z = az * RADIUS;
+        final var h = x * operator.get(0, 3) + y * operator.get(1, 3) + z * operator.get(2, 3) + operator.get(3, 3);
+        if (!(h > 0))
+            return false;
+
+        final var screenX = (x * operator.get(0, 0) + y * operator.get(1, 0) + z * operator.get(2, 0) + operator.get(3, 0)) / h;
+        final var screenY = (x * operator.get(0, 1) + y * operator.get(1, 1) + z * operator.get(2, 1) + operator.get(3, 1)) / h;
+        screenSize = size * scale / h;
+
+        return Math.abs(screenX) - screenSize <= halfWidth && Math.abs(screenY) - screenSize <= halfHeight;
+    }
+
+    private Mesh buildMesh() {
+        final var builder = new MeshBuilder(nodes.getNodesCount(), facesCount);
+        for (var root = 0; root < rootsCount; root++)
+            addLeaves(builder, root);
+
+        return builder.build().withOrientation(base.getOrientation());
+    }
+
+    private void addLeaves(MeshBuilder builder, int face) {
+        if (isSplit[face]) {
+            final var first = children[face];
+            for (var child = first; child < first + 4; child++)
+                addLeaves(builder, child);
+            return;
+        }
+
+        final var p1 = corners[face * 3];
+        final var p2 = corners[face * 3 + 1];
+        final var p3 = corners[face * 3 + 2];
+
+        boundaryCount = 0;
+        addBoundary(p1, p2);
+        addBoundary(p2, p3);
+        addBoundary(p3, p1);
+
+        if (boundaryCount == 3) {
+            builder.addPolygon(outputNode(builder, p1), outputNode(builder, p2), outputNode(builder, p3));
+            return;
+        }
+
+        if (middleNodes[face] == NO_NODE)
+            middleNodes[face] = addSphereNode(nodes.getX(p1) + nodes.getX(p2) + nodes.getX(p3),
+                    nodes.getY(p1) + nodes.getY(p2) + nodes.getY(p3),
+                    nodes.getZ(p1) + nodes.getZ(p2) + nodes.getZ(p3));
+
+        final var middle = outputNode(builder, middleNodes[face]);
+        for (var i = 0; i < boundaryCount; i++)
+            builder.addPolygon(middle, outputNode(builder, boundary[i]),
+                    outputNode(builder, boundary[(i + 1) % boundaryCount]));
+    }
+
+    // Adds the edge start and the nodes finer neighbours put on the edge, in order
+    private void addBoundary(int from, int to) {
+        final var middle = findMidpoint(from, to);
+        if (middle != NO_NODE && splitEpochs[middle] == epoch) {
+            addBoundary(from, middle);
+            addBoundary(middle, to);
+            return;
+        }
+
+        if (boundaryCount == boundary.length)
+            boundary = Arrays.copyOf(boundary, boundaryCount * 2);
+        boundary[boundaryCount++] = from;
+    }
+
+    private int outputNode(MeshBuilder builder, int node) {
+        if (outputEpochs[node] != epoch) {
+            outputEpochs[node] = epoch;
+            outputNodes[node] = builder.addNode(nodes.getX(node), nodes.getY(node), nodes.getZ(node));
+        }
+
+        return outputNodes[node];
+    }
+
+    private int addFace(int p1, int p2, int p3) {
+        if (facesCount == children.length) {
+            final var capacity = Math.max(32, facesCount * 2);
+            corners = Arrays.copyOf(corners, capacity * 3);
+            children = Arrays.copyOf(children, capacity);
+            isSplit = Arrays.copyOf(isSplit, capacity);
+            middleNodes = Arrays.copyOf(middleNodes, capacity);
+        }
+
+        corners[facesCount * 3] = p1;
+        corners[facesCount * 3 + 1] = p2;
+        corners[facesCount * 3 + 2] = p3;
+        children[facesCount] = NO_NODE;
+        isSplit[facesCount] = false;
+        middleNodes[facesCount] = NO_NODE;
+        return facesCount++;
+    }
+
+    private int midpoint(int p1, int p2) {
+        final var key = edgeKey(p1, p2);
+        final var slot = findSlot(key);
+        if (edgeMidpoints[slot] != NO_NODE)
+            return edgeMidpoints[slot];
+
+        final var node = addSphereNode(nodes.getX(p1) + nodes.getX(p2), nodes.getY(p1) + nodes.getY(p2),
+                nodes.getZ(p1) + nodes.getZ(p2));
+        edgeKeys[slot] = key;
+        edgeMidpoints[slot] = node;
+
+        if (++edgesCount * 2 > edgeKeys.length)
+            rehash();
+
+        return node;
+    }
+
+    private int findMidpoint(int p1, int p2) {
+        return edgeMidpoints[findSlot(edgeKey(p1, p2))];
+    }
+
+    // The direction is pushed out to the sphere
+    private int addSphereNode(double x, double y, double z) {
+        final var scale = RADIUS / Math.sqrt(x * x + y * y + z * z);
+        return addNode(x * scale, y * scale, z * scale);
+    }
+
+    private int addNode(double x, double y, double z) {
+        final var node = nodes.addNode(x, y, z);
+        if (node == splitEpochs.length) {
+            final var capacity = Math.max(64, node * 2);
+            splitEpochs = Arrays.copyOf(splitEpochs, capacity);
+            outputEpochs = Arrays.copyOf(outputEpochs, capacity);
+            outputNodes = Arrays.copyOf(outputNodes, capacity);
+        }
+
+        return node;
+    }
+
+    private double length(int node) {
+        final var x = nodes.getX(node);
+        final var y = nodes.getY(node);
+        final var z = nodes.getZ(node);
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+
+    private double cosine(int node, double length, double x, double y, double z) {
+        return (nodes.getX(node) * x + nodes.getY(node) * y + nodes.getZ(node) * z) / length;
+    }
+
+    private double distanceSquared(int p1, int p2) {
+        final var dx = nodes.getX(p1) - nodes.getX(p2);
+        final var dy = nodes.getY(p1) - nodes.getY(p2);
+        final var dz = nodes.getZ(p1) - nodes.getZ(p2);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static void setFace(int[] faces, int offset, int p1, int p2, int p3) {
+        faces[offset] = p1;
+        faces[offset + 1] = p2;
+        faces[offset + 2] = p3;
+    }
+
+    private static long edgeKey(int p1, int p2) {
+        return (long) Math.min(p1, p2) << 32 | Math.max(p1, p2);
+    }
+
+    private int findSlot(long key) {
+        final var mask = edgeKeys.length - 1;
+        var slot = (int) (mix(key) & mask);
+
+        while (edgeMidpoints[slot] != NO_NODE && edgeKeys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private void rehash() {
+        final var oldKeys = edgeKeys;
+        final var oldMidpoints = edgeMidpoints;
+
+        allocateEdges(oldKeys.length * 2);
+        for (var i = 0; i < oldKeys.length; i++) {
+            if (oldMidpoints[i] == NO_NODE)
+                continue;
+
+            final var slot = findSlot(oldKeys[i]);
+            edgeKeys[slot] = oldKeys[i];
+            edgeMidpoints[slot] = oldMidpoints[i];
+        }
+    }
+
+    private void allocateEdges(int capacity) {
+        edgeKeys = new long[capacity];
+        edgeMidpoints = new int[capacity];
+        Arrays.fill(edgeMidpoints, NO_NODE);
+    }
+
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 31);
+    }
+
+}
@@ -0,0 +1,321 @@
+package app;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// STL reader for both the binary and the ASCII flavour. STL stores every triangle with its own
+// three corners, so equal corners are welded into shared nodes. Welding is exact (bit-equal
+// coordinates, as STL writers repeat them) and runs in parallel: every worker owns the corners
+// whose hash falls into its partition, numbers its nodes locally and writes their indices.
+// Binary corners are welded straight from the mapped file, ASCII ones are parsed in parallel
+// into a float array first.
+final class StlReader {
+
+    private static final int BINARY_HEADER_SIZE = 84;
+    private static final int BINARY_RECORD_SIZE = 50;
+    private static final int BINARY_CORNERS_OFFSET = 12;
+
+    // Whole records per mapping, a single mapping is limited to 2 GB
+    private static final int RECORDS_PER_MAPPING = (1 << 30) / BINARY_RECORD_SIZE;
+
+    private StlReader() {
+    }
+
+    static Mesh read(Path file) throws IOException {
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            try {
+                final var trianglesCount = binaryTrianglesCount(channel);
+                final var corners = trianglesCount >= 0 ? mapBinary(channel, trianglesCount) : parseAscii(channel, file);
+                return weld(corners);
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Helpers
+
+    // A file is binary when its size matches the triangle count of the binary header.
+    // ASCII files start with "solid", but so do many binary ones.
+    private static long binaryTrianglesCount(FileChannel channel) throws IOException {
+        if (channel.size() < BINARY_HEADER_SIZE)
+            return -1;
+
+        final var count = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(count, BINARY_HEADER_SIZE - Integer.BYTES);
+        final var trianglesCount = Integer.toUnsignedLong(count.getInt(0));
+
+        return channel.size() == BINARY_HEADER_SIZE + trianglesCount * BINARY_RECORD_SIZE ? trianglesCount : -1;
+    }
+
+    private static Corners mapBinary(FileChannel channel, long trianglesCount) throws IOException {
+        if (trianglesCount * Mesh.POLYGON_SIZE > Integer.MAX_VALUE)
+            throw new IOException("Mesh is too large");
+
+        final var mappings = new ByteBuffer[(int) ((trianglesCount + RECORDS_PER_MAPPING - 1) / RECORDS_PER_MAPPING)];
+        for (var i = 0; i < mappings.length; i++) {
+            final var records = Math.min(RECORDS_PER_MAPPING, trianglesCount - (long) i * RECORDS_PER_MAPPING);
+            mappings[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    BINARY_HEADER_SIZE + (long) i * RECORDS_PER_MAPPING * BINARY_RECORD_SIZE, records * BINARY_RECORD_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        return new BinaryCorners(mappings, (int) trianglesCount * Mesh.POLYGON_SIZE);
+    }
+
+    private static Corners parseAscii(FileChannel channel, Path file) throws IOException {
+        final var chunks = AsciiScanner.split(channel, file);
+        final var offsets = new long[chunks.size() + 1];
+
+        IntStream.range(0, chunks.size()).parallel().forEach(i -> {
+            final var scanner = chunks.get(i);
+            var corners = 0L;
+
+            while (scanner.hasRemaining()) {
+                scanner.skipSpaces();
+                if (scanner.skipKeyword("vertex"))
+                    corners++;
+
+                scanner.skipLine();
+            }
+
+            offsets[i + 1] = corners;
+        });
+
+        for (var i = 0; i < chunks.size(); i++)
+            offsets[i + 1] += offsets[i];
+
+        final var cornersCount = offsets[chunks.size()];
+        if (cornersCount % Mesh.POLYGON_SIZE != 0)
+            throw new IOException("Only triangular facets are supported: " + file);
+        if (cornersCount * Mesh.NODE_SIZE > Integer.MAX_VALUE)
+            throw new IOException("Mesh is too large: " + file);
+
+        final var coordinates = new float[(int) cornersCount * Mesh.NODE_SIZE];
+
+        IntStream.range(0, chunks.size()).parallel().forEach(i -> {
+            final var scanner = chunks.get(i);
+            var corner = (int) offsets[i];
+            scanner.rewind();
+
+            while (scanner.hasRemaining()) {
+                scanner.skipSpaces();
+                if (scanner.skipKeyword("vertex")) {
+                    coordinates[corner * Mesh.NODE_SIZE] = (float) scanner.parseDouble();
+                    coordinates[corner * Mesh.NODE_SIZE + 1] = (float) scanner.parseDouble();
+                    coordinates[corner * Mesh.NODE_SIZE + 2] = (float) scanner.parseDouble();
+                    corner++;
+                }
+
+                scanner.skipLine();
+            }
+        });
+
+        return new ArrayCorners(coordinates);
+    }
+
+    private static Mesh weld(Corners corners) {
+        final var cornersCount = corners.getCount();
+        final var partitionsCount = Integer.highestOneBit(Math.max(1, ForkJoinPool.getCommonPoolParallelism()));
+        final var partitions = new Partition[partitionsCount];
+        final var indices = new int[cornersCount];
+
+        IntStream.range(0, partitionsCount).parallel().forEach(p -> {
+            final var partition = new Partition();
+            for (var corner = 0; corner < cornersCount; corner++) {
+                final var hash = hash(corners, corner);
+                if ((hash & (partitionsCount - 1)) == p)
+                    indices[corner] = partition.addNode(corners, corner, hash >>> 8);
+            }
+
+            partition.releaseTable();
+            partitions[p] = partition;
+        });
+
+        // Local node numbers become global by the offset of their partition
+        final var partitionOffsets = new int[partitionsCount];
+        var nodesCount = 0;
+        for (var p = 0; p < partitionsCount; p++) {
+            partitionOffsets[p] = nodesCount;
+            nodesCount += partitions[p].nodesCount;
+        }
+
+        if (partitionsCount > 1)
+            IntStream.range(0, cornersCount).parallel().forEach(corner ->
+                    indices[corner] += partitionOffsets[hash(corners, corner) & (partitionsCount - 1)]);
+
+        final var nodes = new float[nodesCount * Mesh.NODE_SIZE];
+        for (var p = 0; p < partitionsCount; p++)
+            System.arraycopy(partitions[p].nodes, 0, nodes, partitionOffsets[p] * Mesh.NODE_SIZE, partitions[p].nodesCount * Mesh.NODE_SIZE);
+
+        return Mesh.wrap(nodes, indices);
+    }
+
+    private static int hash(Corners corners, int corner) {
+        var h = (long) bits(corners.getX(corner)) * 0x9E3779B97F4A7C15L
+                + (long) bits(corners.getY(corner)) * 0xC2B2AE3D27D4EB4FL
+                + (long) bits(corners.getZ(corner)) * 0x165667B19E3779F9L;
+        h ^= h >>> 29;
+        return (int) (h ^ h >>> 32);
+    }
+
+    // -0 and 0 are the same point
+    private static int bits(float coordinate) {
+        return Float.floatToIntBits(coordinate + 0f);
+    }
+
+    private interface Corners {
+
+        int getCount();
+        float getX(int corner);
+        float getY(int corner);
+        float getZ(int corner);
+
+    }
+
+    private static final class BinaryCorners implements Corners {
+
+        private final ByteBuffer[] mappings;
+        private final int count;
+
+        BinaryCorners(ByteBuffer[] mappings, int count) {
+            this.mappings = mappings;
+            this.count = count;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public float getX(int corner) {
+            return get(corner, 0);
+        }
+
+        @Override
+        public float getY(int corner) {
+            return get(corner, 1);
+        }
+
+        @Override
+        public float getZ(int corner) {
+            return get(corner, 2);
+        }
+
+        private float get(int corner, int axis) {
+            final var record = corner / Mesh.POLYGON_SIZE;
+            final var position = (record % RECORDS_PER_MAPPING) * BINARY_RECORD_SIZE + BINARY_CORNERS_OFFSET
+                    + ((corner % Mesh.POLYGON_SIZE) * Mesh.NODE_SIZE + axis) * Float.BYTES;
+            return mappings[record / RECORDS_PER_MAPPING].getFloat(position);
+        }
+
+    }
+
+    private static final class ArrayCorners implements Corners {
+
+        private final float[] coordinates;
+
+        ArrayCorners(float[] coordinates) {
+            this.coordinates = coordinates;
+        }
+
+        @Override
+        public int getCount() {
+            return coordinates.length / Mesh.NODE_SIZE;
+        }
+
+        @Override
+        public float getX(int corner) {
+            return coordinates[corner * Mesh.NODE_SIZE];
+        }
+
+        @Override
+        public float getY(int corner) {
+            return coordinates[corner * Mesh.NODE_SIZE + 1];
+        }
+
+        @Override
+        public float getZ(int corner) {
+            return coordinates[corner * Mesh.NODE_SIZE + 2];
+        }
+
+    }
+
+    // Nodes of one partition with an open addressing table of their local numbers
+    private static final class Partition {
+
+        private static final int EMPTY = -1;
+
+        float[] nodes = new float[3 * 1024];
+        int nodesCount;
+
+        private int[] table = newTable(2048);
+        private int[] hashes = new int[1024];
+
+        int addNode(Corners corners, int corner, int hash) {
+            final var x = corners.getX(corner) + 0f;
+            final var y = corners.getY(corner) + 0f;
+            final var z = corners.getZ(corner) + 0f;
+
+            final var mask = table.length - 1;
+            var slot = hash & mask;
+            for (var node = table[slot]; node != EMPTY; node = table[slot = (slot + 1) & mask])
+                if (hashes[node] == hash && nodes[node * Mesh.NODE_SIZE] == x
+                        && nodes[node * Mesh.NODE_SIZE + 1] == y && nodes[node * Mesh.NODE_SIZE + 2] == z)
+                    return node;
+
+            if (nodesCount * Mesh.NODE_SIZE == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            }
+
+            final var node = nodesCount++;
+            nodes[node * Mesh.NODE_SIZE] = x;
+            nodes[node * Mesh.NODE_SIZE + 1] = y;
+            nodes[node * Mesh.NODE_SIZE + 2] = z;
+            hashes[node] = hash;
+            table[slot] = node;
+
+            if (nodesCount * 2 > table.length)
+                rehash();
+
+            return node;
+        }
+
+        void releaseTable() {
+            table = null;
+            hashes = null;
+        }
+
+        private void rehash() {
+            table = newTable(table.length * 2);
+            final var mask = table.length - 1;
+
+            for (var node = 0; node < nodesCount; node++) {
+                var slot = hashes[node] & mask;
+                while (table[slot] != EMPTY)
+                    slot = (slot + 1) & mask;
+
+                table[slot] = node;
+            }
+        }
+
+        private static int[] newTable(int capacity) {
+            final var table = new int[capacity];
+            Arrays.fill(table, EMPTY);
+            return table;
+        }
+
+    }
+
+}
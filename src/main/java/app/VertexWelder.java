@@ -0,0 +1,158 @@
+package app;
+
+import java.util.Arrays;
+
+// Merges nodes that lie within epsilon of each other on every axis while they are
+// added to a MeshBuilder. Nodes are bucketed in a spatial hash with cells of
+// 2 * epsilon, so a lookup probes at most 8 cells and the insert is expected O(1).
+public final class VertexWelder {
+
+    public static final double DEFAULT_EPSILON = 1e-6;
+
+    private static final int EMPTY = -1;
+
+    private final MeshBuilder builder;
+    private final double epsilon;
+    private final double cellSize;
+
+    // Open addressing table: cell coordinates and the last node added to the cell
+    private long[] cellsX;
+    private long[] cellsY;
+    private long[] cellsZ;
+    private int[] heads;
+    private int cellsCount;
+
+    // Chains nodes sharing a cell, indexed by node
+    private int[] next = new int[16];
+
+    public VertexWelder(MeshBuilder builder) {
+        this(builder, DEFAULT_EPSILON);
+    }
+
+    public VertexWelder(MeshBuilder builder, double epsilon) {
+        if (!(epsilon > 0))
+            throw new IllegalArgumentException("Epsilon must be positive: " + epsilon);
+
+        this.builder = builder;
+        this.epsilon = epsilon;
+        this.cellSize = epsilon * 2;
+        allocateTable(64);
+
+        for (var i = 0; i < builder.getNodesCount(); i++)
+            insert(i, builder.getX(i), builder.getY(i), builder.getZ(i));
+    }
+
+    public MeshBuilder getBuilder() {
+        return builder;
+    }
+
+    public int addNode(double x, double y, double z) {
+        final var existing = findNode(x, y, z);
+        if (existing != EMPTY)
+            return existing;
+
+        final var node = builder.addNode(x, y, z);
+        insert(node, x, y, z);
+        return node;
+    }
+
+    public int findNode(double x, double y, double z) {
+        final var minX = cell(x - epsilon);
+        final var maxX = cell(x + epsilon);
+        final var minY = cell(y - epsilon);
+        final var maxY = cell(y + epsilon);
+        final var minZ = cell(z - epsilon);
+        final var maxZ = cell(z + epsilon);
+
+        for (var cx = minX; cx <= maxX; cx++)
+            for (var cy = minY; cy <= maxY; cy++)
+                for (var cz = minZ; cz <= maxZ; cz++) {
+                    final var slot = findSlot(cx, cy, cz);
+                    if (heads[slot] == EMPTY)
+                        continue;
+
+                    for (var node = heads[slot]; node != EMPTY; node = next[node])
+                        if (Math.abs(builder.getX(node) - x) <= epsilon
+                                && Math.abs(builder.getY(node) - y) <= epsilon
+                                && Math.abs(builder.getZ(node) - z) <= epsilon)
+                            return node;
+                }
+
+        return EMPTY;
+    }
+
+    // Helpers
+
+    private void insert(int node, double x, double y, double z) {
+        if (node >= next.length)
+            next = Arrays.copyOf(next, Math.max(next.length * 2, node + 1));
+
+        final var cx = cell(x);
+        final var cy = cell(y);
+        final var cz = cell(z);
+        final var slot = findSlot(cx, cy, cz);
+
+        if (heads[slot] == EMPTY) {
+            cellsX[slot] = cx;
+            cellsY[slot] = cy;
+            cellsZ[slot] = cz;
+            cellsCount++;
+        }
+
+        next[node] = heads[slot];
+        heads[slot] = node;
+
+        if (cellsCount * 2 > heads.length)
+            rehash();
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private int findSlot(long cx, long cy, long cz) {
+        final var mask = heads.length - 1;
+        var slot = hash(cx, cy, cz) & mask;
+
+        while (heads[slot] != EMPTY && (cellsX[slot] != cx || cellsY[slot] != cy || cellsZ[slot] != cz))
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private static int hash(long cx, long cy, long cz) {
+        var h = cx * 0x9E3779B97F4A7C15L + cy * 0xC2B2AE3D27D4EB4FL + cz * 0x165667B19E3779F9L;
+        h ^= h >>> 29;
+        return (int) (h ^ h >>> 32);
+    }
+
+    private void rehash() {
+        final var oldX = cellsX;
+        final var oldY = cellsY;
+        final var oldZ = cellsZ;
+        final var oldHeads = heads;
+
+        allocateTable(oldHeads.length * 2);
+        for (var i = 0; i < oldHeads.length; i++) {
+            if (oldHeads[i] == EMPTY)
+                continue;
+
+            final var slot = findSlot(oldX[i], oldY[i], oldZ[i]);
+            cellsX[slot] = oldX[i];
+            cellsY[slot] = oldY[i];
+            cellsZ[slot] = oldZ[i];
+            heads[slot] = oldHeads[i];
+            cellsCount++;
+        }
+    }
+
+    private void allocateTable(int capacity) {
+        cellsX = new long[capacity];
+        cellsY = new long[capacity];
+        cellsZ = new long[capacity];
+        heads = new int[capacity];
+        Arrays.fill(heads, EMPTY);
+        cellsCount = 0;
+    }
+
+}
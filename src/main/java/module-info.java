@@ -1,11 +1,23 @@
 module _3d._3d {
     requires javafx.controls;
     requires javafx.fxml;
-    requires commons.math3;
+    requires java.desktop;
+    requires jdk.jfr;
+    requires jdk.management;
 
 
     opens app to javafx.fxml;
     exports app;
     exports app.AffineOperations;
+    exports app.Generators;
+    exports app.Profiling;
+    exports app.Rendering;
+    exports app.SceneGraph;
     opens app.AffineOperations to javafx.fxml;
+
+    uses app.MeshGenerator;
+    provides app.MeshGenerator with
+            app.Generators.HeightFieldGenerator,
+            app.Generators.SuperquadricGenerator,
+            app.Generators.TorusGenerator;
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package app.AffineOperations;
+
+// Java 17 version of the class, see the one of the base release. The Vector API is an incubator
+// module: it is used when the runtime resolved it (--add-modules jdk.incubator.vector) and the
+// hardware has vectors of four doubles. Otherwise the portable loops of Matrix4 run.
+final class TransformKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private TransformKernels() {
+    }
+
+    static TransformKernel find() {
+        final var vectorModule = ModuleLayer.boot().findModule(VECTOR_MODULE);
+        if (vectorModule.isEmpty())
+            return null;
+
+        try {
+            // The module descriptor cannot require the incubator module, the application has to start without it
+            TransformKernels.class.getModule().addReads(vectorModule.get());
+            return VectorTransformKernel.isSupported() ? new VectorTransformKernel() : null;
+        }
+        catch (LinkageError e) {
+            System.out.println("Whoops, something went wrong: " + e);
+            return null;
+        }
+    }
+
+}
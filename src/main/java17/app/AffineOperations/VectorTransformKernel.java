@@ -0,0 +1,136 @@
+package app.AffineOperations;
+
+import app.Mesh;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+// Four packed nodes are twelve coordinates, three vectors of four doubles, and so are their results.
+// A result lane needs the x, y and z of its own node. They are read with unaligned loads from the
+// x, y and z of the first node of the vector, and spread over the lanes by a fixed shuffle. Every lane
+// then takes the operator column of its coordinate, so a block costs nine loads, nine shuffles and
+// three fused chains. Gathers would be simpler, but JDK 17 does not compile them well.
+// The lane coefficients are kept in a buffer of the calling thread and loaded again for every vector:
+// vectors kept alive across the loop would be boxed on JDK 17.
+final class VectorTransformKernel implements TransformKernel {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_256;
+
+    private static final int BLOCK_NODES = 4;
+    private static final int BLOCK_SIZE = BLOCK_NODES * Mesh.NODE_SIZE;
+    private static final int LANES = 4;
+
+    // Below that, filling the lane coefficients costs more than it saves
+    private static final int MIN_NODES = 64;
+
+    // Lanes of the three vectors of a block belong to nodes 0 0 0 1, 1 1 2 2 and 2 3 3 3,
+    // counted from the first node of each vector: 0 0 0 1, 0 0 1 1 and 0 1 1 1
+    private static final VectorShuffle<Double> SPREAD_0 = VectorShuffle.fromValues(DOUBLES, 0, 0, 0, 3);
+    private static final VectorShuffle<Double> SPREAD_1 = VectorShuffle.fromValues(DOUBLES, 0, 0, 3, 3);
+    private static final VectorShuffle<Double> SPREAD_2 = VectorShuffle.fromValues(DOUBLES, 0, 3, 3, 3);
+
+    // Rows of the lane coefficients, one entry per coordinate of a block
+    private static final int X_ROW = 0;
+    private static final int Y_ROW = BLOCK_SIZE;
+    private static final int Z_ROW = 2 * BLOCK_SIZE;
+    private static final int CONSTANT_ROW = 3 * BLOCK_SIZE;
+    private static final int VIEWPORT_ROW = 4 * BLOCK_SIZE;
+    private static final int LANES_SIZE = 5 * BLOCK_SIZE;
+
+    // Operators are shared between threads, so the coefficients go to a buffer per thread
+    private static final ThreadLocal<double[]> LANES_BUFFER = ThreadLocal.withInitial(() -> new double[LANES_SIZE]);
+
+    static boolean isSupported() {
+        return DoubleVector.SPECIES_PREFERRED.vectorBitSize() >= DOUBLES.vectorBitSize();
+    }
+
+    @Override
+    public int transform(Matrix4 operator, double[] source, int sourceOffset, int count,
+                         double[] destination, int destinationOffset, double xOffset, double yOffset) {
+        if (count < MIN_NODES)
+            return 0;
+
+        final var lanes = prepareLanes(operator, xOffset, yOffset);
+        final var blocks = count / BLOCK_NODES;
+
+        for (var block = 0; block < blocks; block++) {
+            final var i = sourceOffset + block * BLOCK_SIZE;
+            final var j = destinationOffset + block * BLOCK_SIZE;
+
+            transformVector(operator, lanes, source, i, SPREAD_0, destination, j, 0);
+            transformVector(operator, lanes, source, i + Mesh.NODE_SIZE, SPREAD_1, destination, j + LANES, LANES);
+            transformVector(operator, lanes, source, i + 2 * Mesh.NODE_SIZE, SPREAD_2, destination, j + 2 * LANES, 2 * LANES);
+        }
+
+        return blocks * BLOCK_NODES;
+    }
+
+    // Helpers
+
+    // Same folding as the portable loops: an affine operator takes its constant homogeneous
+    // coordinate and the viewport offsets into the entries
+    private static double[] prepareLanes(Matrix4 operator, double xOffset, double yOffset) {
+        final var lanes = LANES_BUFFER.get();
+        final var isAffine = operator.isAffine();
+        final var k = isAffine ? 1 / operator.m33 : 1;
+
+        for (var position = 0; position < BLOCK_SIZE; position++) {
+            final double viewport;
+
+            switch (position % Mesh.NODE_SIZE) {
+                case 0:
+                    lanes[X_ROW + position] = operator.m00 * k;
+                    lanes[Y_ROW + position] = operator.m10 * k;
+                    lanes[Z_ROW + position] = operator.m20 * k;
+                    lanes[CONSTANT_ROW + position] = operator.m30 * k;
+                    viewport = xOffset;
+                    break;
+
+                case 1:
+                    lanes[X_ROW + position] = operator.m01 * k;
+                    lanes[Y_ROW + position] = operator.m11 * k;
+                    lanes[Z_ROW + position] = operator.m21 * k;
+                    lanes[CONSTANT_ROW + position] = operator.m31 * k;
+                    viewport = yOffset;
+                    break;
+
+                default:
+                    lanes[X_ROW + position] = operator.m02 * k;
+                    lanes[Y_ROW + position] = operator.m12 * k;
+                    lanes[Z_ROW + position] = operator.m22 * k;
+                    lanes[CONSTANT_ROW + position] = operator.m32 * k;
+                    viewport = 0;
+                    break;
+            }
+
+            if (isAffine) {
+                lanes[CONSTANT_ROW + position] += viewport;
+                lanes[VIEWPORT_ROW + position] = 0;
+            }
+            else
+                lanes[VIEWPORT_ROW + position] = viewport;
+        }
+
+        return lanes;
+    }
+
+    private static void transformVector(Matrix4 operator, double[] lanes, double[] source, int i, VectorShuffle<Double> spread,
+                                        double[] destination, int j, int lane) {
+        final var x = DoubleVector.fromArray(DOUBLES, source, i).rearrange(spread);
+        final var y = DoubleVector.fromArray(DOUBLES, source, i + 1).rearrange(spread);
+        final var z = DoubleVector.fromArray(DOUBLES, source, i + 2).rearrange(spread);
+
+        final var result = x.fma(DoubleVector.fromArray(DOUBLES, lanes, X_ROW + lane),
+                y.fma(DoubleVector.fromArray(DOUBLES, lanes, Y_ROW + lane),
+                        z.fma(DoubleVector.fromArray(DOUBLES, lanes, Z_ROW + lane), DoubleVector.fromArray(DOUBLES, lanes, CONSTANT_ROW + lane))));
+
+        if (operator.isAffine()) {
+            result.intoArray(destination, j);
+            return;
+        }
+
+        final var h = x.mul(operator.m03).add(y.mul(operator.m13)).add(z.mul(operator.m23)).add(operator.m33);
+        result.div(h).add(DoubleVector.fromArray(DOUBLES, lanes, VIEWPORT_ROW + lane)).intoArray(destination, j);
+    }
+
+}
@@ -0,0 +1,58 @@
+package app.Rendering;
+
+import app.AffineOperations.ModelTransform;
+import app.Mesh;
+import app.MeshGenerators;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A filled frame shows the nearest front faces only, so hiding the back faces must not take
+// a single pixel away. Surfaces whose planes pass on the far side of the middle point, like the
+// wall inside the hole of a torus, are where orienting the planes by the origin went wrong.
+class VisibilityEngineTest {
+
+    private static final int WIDTH = 700;
+    private static final int HEIGHT = 474;
+
+    @Test
+    void keepsTheFacesInsideTheTorusHole() {
+        assertNoPixelLost(MeshGenerators.find("Torus").getMesh(), 50);
+    }
+
+    @Test
+    void keepsTheUpperSideOfTheHeightField() {
+        assertNoPixelLost(MeshGenerators.find("Height field").getMesh(), -35);
+    }
+
+    // Helpers
+
+    private static void assertNoPixelLost(Mesh mesh, double rotateX) {
+        final var visible = render(mesh, rotateX, true);
+        final var all = render(mesh, rotateX, false);
+
+        var drawn = 0;
+        var lost = 0;
+        for (var i = 0; i < all.length; i++) {
+            if (all[i] == Rasterizer.BACKGROUND_COLOR)
+                continue;
+
+            drawn++;
+            if (visible[i] == Rasterizer.BACKGROUND_COLOR)
+                lost++;
+        }
+
+        assertTrue(drawn > 0, "Nothing drawn");
+        assertEquals(0, lost, "Pixels lost to the Roberts algorithm out of " + drawn);
+    }
+
+    private static int[] render(Mesh mesh, double rotateX, boolean isRobertsAlgorithmEnabled) {
+        final var transform = new ModelTransform();
+        transform.oXRotation(Math.toRadians(rotateX));
+
+        final var request = new FrameRequest(mesh, transform.getMatrix(), false, isRobertsAlgorithmEnabled, WIDTH, HEIGHT);
+        return new OffscreenRenderer(null).render(request, RenderMode.FILLED).getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+    }
+
+}